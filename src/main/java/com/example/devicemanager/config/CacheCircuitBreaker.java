@@ -0,0 +1,289 @@
+package com.example.devicemanager.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for the Redis calls on the request path, so that a slow or unreachable Redis costs
+ * a cache miss instead of a stalled or failed request: the database can still answer.
+ * <p>
+ * While CLOSED, the outcome of the last {@code window-size} calls is kept; once at least
+ * {@code minimum-calls} were made and the share of failed calls or of calls slower than
+ * {@code slow-call-duration} reaches its threshold, the breaker OPENs and every call is bypassed for
+ * {@code open-duration}. It then goes HALF_OPEN and lets {@code probe-calls} calls through: if they
+ * all succeed in time it closes again, and the first failed or slow one reopens it.
+ * <p>
+ * The state is exported as {@code cache.breaker.state{state}} (1 for the current state) and bypassed
+ * calls as {@code cache.breaker.bypassed{cache,operation,reason=open|error}}.
+ */
+@Slf4j
+public class CacheCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final DeviceCacheProperties.Breaker settings;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LongSupplier nanoTime;
+
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+    // A lock rather than synchronized: a virtual thread that blocks while holding it (on logging, say)
+    // does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private final byte[] outcomes;
+    private int calls;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int probesLeft;
+    private int probesSucceeded;
+
+    public CacheCircuitBreaker(DeviceCacheProperties.Breaker settings, MeterRegistry meterRegistry) {
+        this(settings, meterRegistry, System::nanoTime);
+    }
+
+    CacheCircuitBreaker(DeviceCacheProperties.Breaker settings, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        this.outcomes = new byte[Math.max(1, settings.getWindowSize())];
+        for (State s : State.values()) {
+            Gauge.builder("cache.breaker.state", this, breaker -> breaker.getState() == s ? 1 : 0)
+                    .tag("state", s.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs {@code call} unless the breaker is open. Failures are recorded and answered with
+     * {@code bypass} too, so callers see a Redis outage as misses; with the breaker disabled, that
+     * is all it does.
+     */
+    public <T> T execute(String cacheName, String operation, Supplier<T> call, Supplier<T> bypass) {
+        if (!acquirePermission(cacheName, operation)) {
+            return bypass.get();
+        }
+        return measure(cacheName, operation, call, bypass);
+    }
+
+    /**
+     * For calls the caller makes itself, such as non-blocking ones: whether the call may be made. If
+     * so, its outcome must be reported with {@link #recordSuccess}, {@link #recordFailure} or, for a
+     * call that was cancelled before it completed, {@link #releasePermission}. A refused call is
+     * counted as bypassed.
+     */
+    public boolean acquirePermission(String cacheName, String operation) {
+        if (settings.isEnabled() && !tryAcquire()) {
+            bypassed(cacheName, operation, "open");
+            return false;
+        }
+        return true;
+    }
+
+    public void recordSuccess(long elapsedNanos) {
+        record(elapsedNanos >= settings.getSlowCallDuration().toNanos() ? SLOW : SUCCESS);
+    }
+
+    public void recordFailure(String cacheName, String operation, Throwable e) {
+        record(FAILURE);
+        bypassed(cacheName, operation, "error");
+        log.debug("Redis {} on cache {} failed, bypassing the cache: {}", operation, cacheName, e.getMessage());
+    }
+
+    /**
+     * Gives back a permission whose call ended without an outcome, so that a probe is not lost.
+     */
+    public void releasePermission() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probesLeft < settings.getProbeCalls()) {
+                probesLeft++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void run(String cacheName, String operation, Runnable call, Runnable bypass) {
+        execute(cacheName, operation, () -> {
+            call.run();
+            return null;
+        }, () -> {
+            bypass.run();
+            return null;
+        });
+    }
+
+    private <T> T measure(String cacheName, String operation, Supplier<T> call, Supplier<T> bypass) {
+        long started = nanoTime.getAsLong();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            recordFailure(cacheName, operation, e);
+            return bypass.get();
+        }
+        recordSuccess(nanoTime.getAsLong() - started);
+        return result;
+    }
+
+    /**
+     * Registers an action to run when the breaker closes after having been open.
+     */
+    public void onClose(Runnable listener) {
+        closeListeners.add(listener);
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@code false} while calls may be bypassed (open or probing)
+     */
+    public boolean isClosed() {
+        return !settings.isEnabled() || getState() == State.CLOSED;
+    }
+
+    private boolean tryAcquire() {
+        lock.lock();
+        try {
+            return acquire();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean acquire() {
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesLeft = settings.getProbeCalls();
+            probesSucceeded = 0;
+            log.info("Redis cache circuit breaker half-open, probing with {} calls", probesLeft);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesLeft == 0) {
+                return false;
+            }
+            probesLeft--;
+        }
+        return true;
+    }
+
+    private void record(byte outcome) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        boolean closed;
+        lock.lock();
+        try {
+            closed = recordOutcome(outcome);
+        } finally {
+            lock.unlock();
+        }
+        if (closed) {
+            closeListeners.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * @return whether the outcome closed the breaker
+     */
+    private boolean recordOutcome(byte outcome) {
+        if (state == State.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                open("a probe call " + (outcome == FAILURE ? "failed" : "was slow"));
+            } else if (++probesSucceeded >= settings.getProbeCalls()) {
+                state = State.CLOSED;
+                resetWindow();
+                log.info("Redis cache circuit breaker closed");
+                return true;
+            }
+            return false;
+        }
+        if (state == State.OPEN) {
+            // A call that started before the breaker opened
+            return false;
+        }
+        if (calls == outcomes.length) {
+            forget(outcomes[next]);
+        } else {
+            calls++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+        if (calls >= settings.getMinimumCalls()) {
+            if (failures >= settings.getFailureRateThreshold() * calls) {
+                open(failures + " of the last " + calls + " calls failed");
+            } else if (slowCalls >= settings.getSlowCallRateThreshold() * calls) {
+                open(slowCalls + " of the last " + calls + " calls were slower than " + settings.getSlowCallDuration());
+            }
+        }
+        return false;
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openUntil = nanoTime.getAsLong() + settings.getOpenDuration().toNanos();
+        resetWindow();
+        log.warn("Redis cache circuit breaker opened, bypassing the cache for {}: {}", settings.getOpenDuration(), reason);
+    }
+
+    private void forget(byte outcome) {
+        if (outcome == FAILURE) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slowCalls--;
+        }
+    }
+
+    private void resetWindow() {
+        calls = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void bypassed(String cacheName, String operation, String reason) {
+        Counter.builder("cache.breaker.bypassed")
+                .tag("cache", cacheName)
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -1,33 +1,77 @@
 package com.example.devicemanager.config;
 
-import org.springframework.cache.CacheManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.interceptor.SimpleCacheErrorHandler;
+import org.springframework.cache.interceptor.LoggingCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-
-import java.time.Duration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(DeviceCacheProperties.class)
 public class CacheConfig {
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public RedisSerializer<Object> cacheValueSerializer() {
+        return new DeviceCacheSerializer();
+    }
+
+    @Bean
+    public CacheCircuitBreaker cacheCircuitBreaker(DeviceCacheProperties properties, MeterRegistry meterRegistry) {
+        return new CacheCircuitBreaker(properties.getBreaker(), meterRegistry);
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                             RedisSerializer<Object> cacheValueSerializer,
+                                             StringRedisTemplate redisTemplate,
+                                             ObjectMapper objectMapper,
+                                             DeviceCacheProperties properties,
+                                             CacheCircuitBreaker cacheCircuitBreaker,
+                                             MeterRegistry meterRegistry,
+                                             Environment environment) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10))
+                .entryTtl(new JitteredTimeToLive(properties.getL2TimeToLive(), properties.getTimeToLiveJitter()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cacheValueSerializer))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(redisConnectionFactory)
-                .cacheDefaults(config)
-                .build();
+        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(redisConnectionFactory)
+                .cacheDefaults(config);
+        properties.getTimeToLive().keySet().forEach(cacheName ->
+                builder.withCacheConfiguration(cacheName, config.entryTtl(properties.timeToLiveOf(cacheName))));
+        RedisCacheManager redisCacheManager = builder.build();
+        redisCacheManager.initializeCaches();
+
+        return new TwoLevelCacheManager(redisCacheManager, redisTemplate, cacheValueSerializer, objectMapper,
+                properties, cacheCircuitBreaker, meterRegistry, ThreadFactories.of(environment, "cache-refresh-"),
+                ThreadFactories.of(environment, "cache-replay-"));
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory redisConnectionFactory,
+                                                                   TwoLevelCacheManager cacheManager,
+                                                                   DeviceCacheProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(properties.getInvalidationChannel()));
+        return container;
     }
 
+    // Redis failures are already turned into misses by CircuitBreakingCache; anything else is logged
+    // and the method runs uncached, rather than failing a request the database can answer
     @Bean
-    public SimpleCacheErrorHandler errorHandler() {
-        return new SimpleCacheErrorHandler();
+    public LoggingCacheErrorHandler errorHandler() {
+        return new LoggingCacheErrorHandler();
     }
 }
@@ -0,0 +1,164 @@
+package com.example.devicemanager.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.lang.Nullable;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends every call to the shared (Redis) cache through the {@link CacheCircuitBreaker}: while the
+ * breaker is open, or when a call fails, reads are misses and puts are skipped.
+ * <p>
+ * A skipped or failed eviction, and the eviction that takes the place of a skipped put, is queued
+ * instead: a lost one would leave an outdated value in Redis for its whole time to live. While the
+ * breaker is open the queue takes them without trying Redis, so that writes do not wait on it, and
+ * once it closes they are replayed on the given executor. Past {@value #MAX_PENDING_EVICTIONS} keys,
+ * the whole cache is cleared instead.
+ */
+@Slf4j
+class CircuitBreakingCache implements Cache {
+
+    static final int MAX_PENDING_EVICTIONS = 10_000;
+
+    private final Cache delegate;
+
+    private final CacheCircuitBreaker breaker;
+
+    private final Set<Object> pendingEvictions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean pendingClear;
+
+    private final Executor replayExecutor;
+
+    // At most one replay queued per cache, whatever the number of closes and late evictions
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
+
+    CircuitBreakingCache(Cache delegate, CacheCircuitBreaker breaker, Executor replayExecutor) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        this.replayExecutor = replayExecutor;
+        breaker.onClose(this::scheduleReplay);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper get(Object key) {
+        return breaker.execute(getName(), "get", () -> delegate.get(key), () -> null);
+    }
+
+    @Override
+    @Nullable
+    public <T> T get(Object key, @Nullable Class<T> type) {
+        return breaker.execute(getName(), "get", () -> delegate.get(key, type), () -> null);
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, @Nullable Object value) {
+        breaker.run(getName(), "put", () -> delegate.put(key, value), () -> evict(key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        breaker.run(getName(), "evict", () -> delegate.evict(key), () -> evictLater(key));
+    }
+
+    @Override
+    public void clear() {
+        breaker.run(getName(), "clear", delegate::clear, this::clearLater);
+    }
+
+    private void evictLater(Object key) {
+        if (pendingEvictions.size() >= MAX_PENDING_EVICTIONS) {
+            pendingClear = true;
+        } else {
+            pendingEvictions.add(key);
+        }
+        replayIfClosed();
+    }
+
+    private void clearLater() {
+        pendingClear = true;
+        replayIfClosed();
+    }
+
+    // A failed call that did not open the breaker, or one bypassed just before it closed, would
+    // otherwise wait for the next close
+    private void replayIfClosed() {
+        if (breaker.isClosed()) {
+            scheduleReplay();
+        }
+    }
+
+    private void scheduleReplay() {
+        if ((pendingEvictions.isEmpty() && !pendingClear) || !replayScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            replayExecutor.execute(() -> {
+                replayScheduled.set(false);
+                replayEvictions();
+            });
+        } catch (RejectedExecutionException e) {
+            replayScheduled.set(false);
+            log.warn("Could not schedule the replay of skipped writes to cache {}: {}", getName(), e.getMessage());
+        }
+    }
+
+    void replayEvictions() {
+        try {
+            if (pendingClear) {
+                delegate.clear();
+                pendingClear = false;
+                pendingEvictions.clear();
+                log.info("Cleared cache {} after Redis writes were skipped", getName());
+                return;
+            }
+            int evicted = 0;
+            for (Object key : pendingEvictions) {
+                delegate.evict(key);
+                pendingEvictions.remove(key);
+                evicted++;
+            }
+            if (evicted > 0) {
+                log.info("Evicted {} keys of cache {} whose Redis writes were skipped", evicted, getName());
+            }
+        } catch (RuntimeException e) {
+            // What is left is replayed the next time the breaker closes
+            log.warn("Could not replay skipped writes to cache {}: {}", getName(), e.getMessage());
+        }
+    }
+}
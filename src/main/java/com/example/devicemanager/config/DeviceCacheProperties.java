@@ -0,0 +1,213 @@
+package com.example.devicemanager.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "device.cache")
+public class DeviceCacheProperties {
+
+    /**
+     * Maximum number of entries per cache in the in-process tier; least recently used entries are evicted first.
+     */
+    private long l1MaximumSize = 10_000;
+
+    /**
+     * Upper bound on how long an entry stays in the in-process tier, in case an invalidation message is missed.
+     */
+    private Duration l1TimeToLive = Duration.ofMinutes(1);
+
+    /**
+     * Time to live of entries in Redis, unless set for their cache in {@code time-to-live}.
+     */
+    private Duration l2TimeToLive = Duration.ofMinutes(10);
+
+    /**
+     * Time to live in Redis per cache name. Writes move the device list ({@code allDevices}) to a new
+     * generation, so its value mostly bounds how long pages of superseded generations occupy memory.
+     */
+    private Map<String, Duration> timeToLive = new HashMap<>(Map.of("allDevices", Duration.ofMinutes(5)));
+
+    /**
+     * Spread of Redis times to live as a fraction of the configured value (0.1 is ±10%), so entries
+     * written together do not expire together.
+     */
+    private double timeToLiveJitter = 0.1;
+
+    /**
+     * Per cache name: entries read within this window before they expire in Redis are reloaded in the
+     * background. Caches not listed are only loaded on a miss.
+     */
+    private Map<String, Duration> refreshAhead = new HashMap<>();
+
+    /**
+     * Threads running refresh-ahead reloads; reloads that do not fit in their queue are skipped.
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * Redis pub/sub channel on which nodes announce writes so the others drop their in-process copy.
+     */
+    private String invalidationChannel = "device-cache:invalidations";
+
+    /**
+     * Answer GET /api/devices/{id} from the "deviceJson" cache: the response body as JSON (and gzip)
+     * bytes, written out without deserializing or serializing a device.
+     */
+    private boolean serializedResponses = false;
+
+    private LoadLock loadLock = new LoadLock();
+
+    private Sweep sweep = new Sweep();
+
+    private WarmUp warmUp = new WarmUp();
+
+    private Breaker breaker = new Breaker();
+
+    public JitteredTimeToLive timeToLiveOf(String cacheName) {
+        return new JitteredTimeToLive(timeToLive.getOrDefault(cacheName, l2TimeToLive), timeToLiveJitter);
+    }
+
+    @Getter
+    @Setter
+    public static class LoadLock {
+
+        /**
+         * Coordinate cache loads across nodes through a Redis lock, so a miss on a hot key runs one
+         * database load cluster-wide instead of one per node.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Lock expiry; also the longest time other nodes wait for the holder's value.
+         */
+        private Duration lease = Duration.ofSeconds(2);
+
+        /**
+         * How often waiting nodes check Redis for the loaded value.
+         */
+        private Duration pollInterval = Duration.ofMillis(20);
+    }
+
+    @Getter
+    @Setter
+    public static class Sweep {
+
+        /**
+         * Periodically scan Redis for cache entries that can no longer be read (device list pages of
+         * superseded generations, entries without a time to live) and delete them.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Delay between two sweep runs.
+         */
+        private Duration interval = Duration.ofMinutes(5);
+
+        /**
+         * Keys examined per run; a run continues the scan where the previous one stopped.
+         */
+        private int batchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class WarmUp {
+
+        /**
+         * Preload the cache when the node starts, holding readiness until done or timed out.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of most read devices to preload, from the access-frequency snapshot.
+         */
+        private int devices = 1000;
+
+        /**
+         * Number of device list pages to preload, starting from the first.
+         */
+        private int listPages = 3;
+
+        /**
+         * Page size of the preloaded list pages; should match what clients request.
+         */
+        private int listPageSize = 10;
+
+        /**
+         * Devices loaded per database query.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Batches loaded concurrently.
+         */
+        private int parallelism = 4;
+
+        /**
+         * Longest time readiness is held; the node then serves whatever was preloaded by then.
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * How often each node adds its read counts to the snapshot.
+         */
+        private Duration snapshotInterval = Duration.ofMinutes(1);
+
+        /**
+         * Factor applied to the snapshot's counts whenever a node flushes, so it follows what is read now.
+         */
+        private double snapshotDecay = 0.5;
+    }
+
+    @Getter
+    @Setter
+    public static class Breaker {
+
+        /**
+         * Bypass the Redis cache (reads miss, writes are skipped) while it fails or is slow.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Share of failed calls, within the window, that opens the breaker.
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * Share of slow calls, within the window, that opens the breaker.
+         */
+        private double slowCallRateThreshold = 0.5;
+
+        /**
+         * Calls taking at least this long count as slow.
+         */
+        private Duration slowCallDuration = Duration.ofMillis(50);
+
+        /**
+         * Number of most recent calls the rates are computed over.
+         */
+        private int windowSize = 50;
+
+        /**
+         * Calls needed in the window before the rates are evaluated.
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * How long the cache is bypassed before probing Redis again.
+         */
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        /**
+         * Calls let through while probing; all must succeed in time to close the breaker.
+         */
+        private int probeCalls = 3;
+    }
+}
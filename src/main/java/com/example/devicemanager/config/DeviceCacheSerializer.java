@@ -0,0 +1,210 @@
+package com.example.devicemanager.config;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.SerializedDeviceDTO;
+import com.example.devicemanager.model.State;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format for the cached values: a single {@link DeviceDTO} ("devices"), a page of
+ * them ("allDevices") or the response bytes of one ("deviceJson"). Every value starts with a format
+ * version byte and a type byte; the state is written as its ordinal and the creation time as epoch
+ * seconds plus nanos.
+ * <p>
+ * A value in an unknown format - written by a newer release during a rolling upgrade, or JDK
+ * serialized by an older one - deserializes to {@code null}, which the cache treats as a miss and
+ * overwrites with the current format. New {@link State} constants must therefore be appended, and
+ * any other layout change needs a new {@link #FORMAT_VERSION}.
+ */
+@Slf4j
+public class DeviceCacheSerializer implements RedisSerializer<Object> {
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final byte TYPE_DEVICE = 1;
+    private static final byte TYPE_DEVICE_PAGE = 2;
+    private static final byte TYPE_SERIALIZED_DEVICE = 3;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_NAME = 1 << 1;
+    private static final int HAS_BRAND = 1 << 2;
+    private static final int HAS_STATE = 1 << 3;
+    private static final int HAS_CREATION_TIME = 1 << 4;
+    private static final int HAS_VERSION = 1 << 5;
+
+    private static final State[] STATES = State.values();
+
+    @Override
+    public byte[] serialize(@Nullable Object value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            if (value instanceof DeviceDTO device) {
+                out.writeByte(TYPE_DEVICE);
+                writeDevice(out, device);
+            } else if (value instanceof Page<?> page) {
+                out.writeByte(TYPE_DEVICE_PAGE);
+                writePage(out, page);
+            } else if (value instanceof SerializedDeviceDTO device) {
+                out.writeByte(TYPE_SERIALIZED_DEVICE);
+                writeSerializedDevice(out, device);
+            } else {
+                throw new SerializationException("Cannot cache values of type " + value.getClass().getName());
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Could not serialize " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    @Nullable
+    public Object deserialize(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != FORMAT_VERSION) {
+            log.debug("Ignoring cached value in unknown format {}", bytes[0]);
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            byte type = in.readByte();
+            return switch (type) {
+                case TYPE_DEVICE -> readDevice(in);
+                case TYPE_DEVICE_PAGE -> readPage(in);
+                case TYPE_SERIALIZED_DEVICE -> readSerializedDevice(in);
+                default -> {
+                    log.debug("Ignoring cached value of unknown type {}", type);
+                    yield null;
+                }
+            };
+        } catch (IOException | IndexOutOfBoundsException e) {
+            // Truncated, or a state this release does not know: a miss, so the entry gets rewritten
+            log.warn("Ignoring unreadable cached device value: {}", e.toString());
+            return null;
+        }
+    }
+
+    // Version as -1 when absent (versions start at 0); the gzip bytes as length -1 when absent
+    private static void writeSerializedDevice(DataOutputStream out, SerializedDeviceDTO device) throws IOException {
+        out.writeLong(device.getVersion() != null ? device.getVersion() : -1);
+        out.writeInt(device.getJson().length);
+        out.write(device.getJson());
+        out.writeInt(device.getGzip() != null ? device.getGzip().length : -1);
+        if (device.getGzip() != null) {
+            out.write(device.getGzip());
+        }
+    }
+
+    private static SerializedDeviceDTO readSerializedDevice(DataInputStream in) throws IOException {
+        long version = in.readLong();
+        byte[] json = new byte[in.readInt()];
+        in.readFully(json);
+        int gzipLength = in.readInt();
+        byte[] gzip = null;
+        if (gzipLength >= 0) {
+            gzip = new byte[gzipLength];
+            in.readFully(gzip);
+        }
+        return new SerializedDeviceDTO(version >= 0 ? version : null, json, gzip);
+    }
+
+    private static void writePage(DataOutputStream out, Page<?> page) throws IOException {
+        out.writeInt(page.getNumber());
+        out.writeInt(page.getSize());
+        out.writeLong(page.getTotalElements());
+        List<?> content = page.getContent();
+        out.writeInt(content.size());
+        for (Object element : content) {
+            if (!(element instanceof DeviceDTO device)) {
+                throw new SerializationException("Cannot cache pages of " + element.getClass().getName());
+            }
+            writeDevice(out, device);
+        }
+    }
+
+    private static Page<DeviceDTO> readPage(DataInputStream in) throws IOException {
+        int number = in.readInt();
+        int size = in.readInt();
+        long total = in.readLong();
+        int count = in.readInt();
+        List<DeviceDTO> content = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            content.add(readDevice(in));
+        }
+        return new PageImpl<>(content, size > 0 ? PageRequest.of(number, size) : Pageable.unpaged(), total);
+    }
+
+    private static void writeDevice(DataOutputStream out, DeviceDTO device) throws IOException {
+        int present = (device.getId() != null ? HAS_ID : 0)
+                | (device.getName() != null ? HAS_NAME : 0)
+                | (device.getBrand() != null ? HAS_BRAND : 0)
+                | (device.getState() != null ? HAS_STATE : 0)
+                | (device.getCreationTime() != null ? HAS_CREATION_TIME : 0)
+                | (device.getVersion() != null ? HAS_VERSION : 0);
+        out.writeByte(present);
+
+        if (device.getId() != null) {
+            out.writeLong(device.getId());
+        }
+        if (device.getName() != null) {
+            out.writeUTF(device.getName());
+        }
+        if (device.getBrand() != null) {
+            out.writeUTF(device.getBrand());
+        }
+        if (device.getState() != null) {
+            out.writeByte(device.getState().ordinal());
+        }
+        if (device.getCreationTime() != null) {
+            out.writeLong(device.getCreationTime().getEpochSecond());
+            out.writeInt(device.getCreationTime().getNano());
+        }
+        if (device.getVersion() != null) {
+            out.writeLong(device.getVersion());
+        }
+    }
+
+    private static DeviceDTO readDevice(DataInputStream in) throws IOException {
+        int present = in.readUnsignedByte();
+        DeviceDTO device = new DeviceDTO();
+        if ((present & HAS_ID) != 0) {
+            device.setId(in.readLong());
+        }
+        if ((present & HAS_NAME) != 0) {
+            device.setName(in.readUTF());
+        }
+        if ((present & HAS_BRAND) != 0) {
+            device.setBrand(in.readUTF());
+        }
+        if ((present & HAS_STATE) != 0) {
+            device.setState(STATES[in.readUnsignedByte()]);
+        }
+        if ((present & HAS_CREATION_TIME) != 0) {
+            device.setCreationTime(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+        }
+        if ((present & HAS_VERSION) != 0) {
+            device.setVersion(in.readLong());
+        }
+        return device;
+    }
+}
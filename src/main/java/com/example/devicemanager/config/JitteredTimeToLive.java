@@ -0,0 +1,33 @@
+package com.example.devicemanager.config;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * A Redis time to live spread by up to {@code ±jitter} of the base value, so entries written together
+ * (a warm-up, a busy minute) do not all expire, and go back to the database, in the same instant.
+ * <p>
+ * The offset is derived from the key instead of drawn at random: the same key always gets the same
+ * time to live, which lets {@link TwoLevelCache} know when an entry it just wrote will expire in Redis
+ * without asking.
+ */
+public record JitteredTimeToLive(Duration base, double jitter) implements RedisCacheWriter.TtlFunction {
+
+    public JitteredTimeToLive {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Time to live jitter must be in [0, 1): " + jitter);
+        }
+    }
+
+    @Override
+    public Duration getTimeToLive(Object key, @Nullable Object value) {
+        if (jitter == 0) {
+            return base;
+        }
+        // Spread the key hash over [-1, 1]
+        double offset = (Math.floorMod(key.toString().hashCode() * 0x9e3779b9, 2001) - 1000) / 1000.0;
+        return Duration.ofMillis(Math.round(base.toMillis() * (1 + jitter * offset)));
+    }
+}
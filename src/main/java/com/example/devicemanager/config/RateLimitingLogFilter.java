@@ -0,0 +1,57 @@
+package com.example.devicemanager.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback filter passing at most {@code maxPerSecond} events per second and denying the rest, so a
+ * burst of slow queries (typically a database in trouble) cannot flood the log. How many events were
+ * dropped is logged when the next second lets events through again.
+ */
+public class RateLimitingLogFilter extends Filter<ILoggingEvent> {
+
+    private int maxPerSecond = 5;
+
+    // Second (since the epoch) and the events seen in it, packed so both change together
+    private final AtomicLong window = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        long second = event.getTimeStamp() / 1000;
+        while (true) {
+            long current = window.get();
+            long currentSecond = current >>> 20;
+            long count = current & 0xFFFFF;
+            long next = currentSecond == second ? current + 1 : (second << 20) | 1;
+            if (currentSecond == second && count >= maxPerSecond) {
+                dropped.incrementAndGet();
+                return FilterReply.DENY;
+            }
+            if (window.compareAndSet(current, next)) {
+                if (currentSecond != second) {
+                    reportDropped();
+                }
+                return FilterReply.NEUTRAL;
+            }
+        }
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            // Through another logger, so this line is not subject to the limit itself
+            LoggerFactory.getLogger(RateLimitingLogFilter.class)
+                    .warn("{} log events dropped by the rate limit of {} per second", count, maxPerSecond);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.devicemanager.config;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking read side of the "devices" cache for the reactive stack: the Redis tier only, with the
+ * keys ({@code devices::<id>}), value format and jittered time to live of {@link TwoLevelCache}, so
+ * both stacks can share one Redis. Evictions are not made here: the reactive service evicts through
+ * the blocking cache.
+ * <p>
+ * Calls share the {@link CacheCircuitBreaker} of the blocking cache: they are skipped while it is
+ * open, cut off after {@code slow-call-duration} and their outcome is recorded. Skipped, failed and
+ * timed out calls are answered as misses (or skipped fills): the database still answers.
+ */
+public class ReactiveDeviceCache {
+
+    static final String CACHE_NAME = "devices";
+
+    // Same key as com.example.devicemanager.service.DeviceListGeneration
+    static final String LIST_GENERATION_KEY = "devices:list-generation";
+
+    private final ReactiveRedisTemplate<String, Object> values;
+
+    private final ReactiveRedisTemplate<String, String> strings;
+
+    private final JitteredTimeToLive timeToLive;
+
+    private final CacheCircuitBreaker breaker;
+
+    private final Duration callTimeout;
+
+    public ReactiveDeviceCache(ReactiveRedisTemplate<String, Object> values,
+                               ReactiveRedisTemplate<String, String> strings,
+                               DeviceCacheProperties properties,
+                               CacheCircuitBreaker breaker) {
+        this.values = values;
+        this.strings = strings;
+        this.timeToLive = properties.timeToLiveOf(CACHE_NAME);
+        this.breaker = breaker;
+        this.callTimeout = properties.getBreaker().getSlowCallDuration();
+    }
+
+    public Mono<DeviceDTO> get(Long id) {
+        return guarded("get", values.opsForValue().get(key(id)))
+                .ofType(DeviceDTO.class);
+    }
+
+    /**
+     * @return the cached devices by id; ids not in the cache are absent
+     */
+    public Mono<Map<Long, DeviceDTO>> getAll(List<Long> ids) {
+        return guarded("get-all", values.opsForValue().multiGet(ids.stream().map(ReactiveDeviceCache::key).toList()))
+                .map(cached -> {
+                    Map<Long, DeviceDTO> devices = new HashMap<>();
+                    for (int i = 0; i < ids.size(); i++) {
+                        if (cached.get(i) instanceof DeviceDTO device) {
+                            devices.put(ids.get(i), device);
+                        }
+                    }
+                    return devices;
+                })
+                .defaultIfEmpty(Map.of());
+    }
+
+    /**
+     * Stores devices read from the database. Like loads in {@link TwoLevelCache}, this publishes no
+     * invalidation: other nodes hold no newer copy.
+     */
+    public Mono<Void> fill(Collection<DeviceDTO> devices) {
+        return guarded("fill", Flux.fromIterable(devices)
+                .flatMap(device -> values.opsForValue().set(key(device.getId()), device,
+                        timeToLive.getTimeToLive(device.getId(), device)))
+                .then());
+    }
+
+    /**
+     * @return the current list generation, empty while Redis cannot be read
+     */
+    public Mono<Long> listGeneration() {
+        // A lost key restarts from the clock, as in DeviceListGeneration
+        String seed = String.valueOf(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+        return guarded("generation", strings.opsForValue().get(LIST_GENERATION_KEY)
+                .switchIfEmpty(Mono.defer(() -> strings.opsForValue().setIfAbsent(LIST_GENERATION_KEY, seed)
+                        .then(strings.opsForValue().get(LIST_GENERATION_KEY))
+                        .defaultIfEmpty(seed))))
+                .map(Long::valueOf);
+    }
+
+    /**
+     * Makes {@code call} through the breaker, as {@link CacheCircuitBreaker#execute} does for blocking
+     * calls; an empty result stands for the bypass.
+     */
+    private <T> Mono<T> guarded(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!breaker.acquirePermission(CACHE_NAME, operation)) {
+                return Mono.<T>empty();
+            }
+            long started = System.nanoTime();
+            return call.timeout(callTimeout)
+                    .doOnSuccess(result -> breaker.recordSuccess(System.nanoTime() - started))
+                    .doOnCancel(breaker::releasePermission)
+                    .onErrorResume(e -> {
+                        breaker.recordFailure(CACHE_NAME, operation, e);
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private static String key(Long id) {
+        return CACHE_NAME + "::" + id;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.devicemanager.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times each request on the reactive stack, until the response completes, and hands it to the
+ * {@link RequestLogger}.
+ */
+@RequiredArgsConstructor
+public class ReactiveRequestLogFilter implements WebFilter {
+
+    private final RequestLogger requestLogger;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long started = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            requestLogger.log(request.getMethod().name(), request.getPath().value(), status != null ? status.value() : 200,
+                    System.nanoTime() - started,
+                    RequestLogger.deviceId(exchange.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)));
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.devicemanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Beans of the reactive (WebFlux + R2DBC) variant of the API, active only when the deployment runs
+ * with {@code spring.main.web-application-type=reactive}. Spring Boot's R2DBC auto-configuration is
+ * excluded so that servlet deployments do not open an R2DBC pool next to Hikari, and so that its
+ * reactive transaction manager does not compete with the JPA one.
+ * <p>
+ * Flyway, JPA and the blocking cache beans still start in a reactive deployment: Flyway migrates the
+ * schema over JDBC, and the cache warm-up and sweep run as they do on servlet nodes. Requests only use
+ * R2DBC, so the JDBC pool is shrunk to {@code device.reactive.jdbc-pool-size}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveStackConfig {
+
+    // Netty rather than Tomcat's reactive adapter, which Spring Boot would pick while Tomcat is on the classpath
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // Applied after spring.datasource.hikari is bound, and before the pool starts on its first connection
+    @Bean
+    public static BeanPostProcessor jdbcPoolSizer(@Value("${device.reactive.jdbc-pool-size:2}") int poolSize) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    pool.setMaximumPoolSize(poolSize);
+                    pool.setMinimumIdle(poolSize);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Not exposed as a ConnectionFactory bean: one would switch off Boot's DataSource auto-configuration,
+    // which Flyway and JPA still need
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient(R2dbcProperties properties) {
+        ConnectionFactory connectionFactory = ConnectionFactoryBuilder.withUrl(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxAcquireTime() != null) {
+            configuration.maxAcquireTime(pool.getMaxAcquireTime());
+        }
+        connectionPool = new ConnectionPool(configuration.build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void closeConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    @Bean
+    public ReactiveDeviceCache reactiveDeviceCache(ReactiveRedisConnectionFactory redisConnectionFactory,
+                                                   RedisSerializer<Object> cacheValueSerializer,
+                                                   DeviceCacheProperties properties,
+                                                   CacheCircuitBreaker cacheCircuitBreaker) {
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(RedisSerializer.string())
+                .value(cacheValueSerializer)
+                .build();
+        return new ReactiveDeviceCache(new ReactiveRedisTemplate<>(redisConnectionFactory, context),
+                new ReactiveRedisTemplate<>(redisConnectionFactory, RedisSerializationContext.string()),
+                properties, cacheCircuitBreaker);
+    }
+}
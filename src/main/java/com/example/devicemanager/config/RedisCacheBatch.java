@@ -0,0 +1,96 @@
+package com.example.devicemanager.config;
+
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link TwoLevelCache.SharedBatch} for the Redis caches: one MGET for lookups, one pipeline of
+ * SET PX for stores and one of GET and PTTL for a value with its time to live. It writes what {@link org.springframework.data.redis.cache.RedisCache} writes:
+ * the same keys ({@code <cache>::<key>}), value format and jittered time to live. Calls go through
+ * the {@link CacheCircuitBreaker}: bypassed lookups miss and bypassed stores are dropped, which is
+ * safe as only loaded values are stored in batches.
+ */
+class RedisCacheBatch implements TwoLevelCache.SharedBatch {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisSerializer<Object> valueSerializer;
+
+    private final DeviceCacheProperties properties;
+
+    private final CacheCircuitBreaker breaker;
+
+    RedisCacheBatch(StringRedisTemplate redisTemplate, RedisSerializer<Object> valueSerializer,
+                    DeviceCacheProperties properties, CacheCircuitBreaker breaker) {
+        this.redisTemplate = redisTemplate;
+        this.valueSerializer = valueSerializer;
+        this.properties = properties;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public List<Object> getAll(String cacheName, List<?> keys) {
+        byte[][] redisKeys = keys.stream().map(key -> redisKey(cacheName, key)).toArray(byte[][]::new);
+        List<byte[]> values = breaker.execute(cacheName, "get-all",
+                () -> redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(redisKeys)),
+                () -> Collections.nCopies(keys.size(), null));
+        List<Object> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] value = values != null ? values.get(i) : null;
+            // Unreadable values deserialize to null, a miss, as in RedisCache
+            result.add(value != null ? valueSerializer.deserialize(value) : null);
+        }
+        return result;
+    }
+
+    @Override
+    @Nullable
+    public TimedValue getWithTimeToLive(String cacheName, Object key) {
+        byte[] redisKey = redisKey(cacheName, key);
+        List<Object> replies = breaker.execute(cacheName, "get",
+                () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    connection.stringCommands().get(redisKey);
+                    connection.keyCommands().pTtl(redisKey);
+                    return null;
+                }, RedisSerializer.byteArray()),
+                () -> null);
+        if (replies == null || !(replies.get(0) instanceof byte[] value)) {
+            return null;
+        }
+        Object deserialized = valueSerializer.deserialize(value);
+        if (deserialized == null) {
+            return null;
+        }
+        // PTTL is negative for a key without expiry, or one that expired between the two commands
+        Long millis = (Long) replies.get(1);
+        return new TimedValue(deserialized, millis != null && millis >= 0 ? Duration.ofMillis(millis) : null);
+    }
+
+    @Override
+    public void putAll(String cacheName, Map<?, ?> values) {
+        JitteredTimeToLive timeToLive = properties.timeToLiveOf(cacheName);
+        breaker.run(cacheName, "put-all", () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> connection.stringCommands().set(
+                    redisKey(cacheName, key),
+                    valueSerializer.serialize(value),
+                    Expiration.from(timeToLive.getTimeToLive(key, value)),
+                    RedisStringCommands.SetOption.upsert()));
+            return null;
+        }), () -> { });
+    }
+
+    private static byte[] redisKey(String cacheName, Object key) {
+        return (cacheName + "::" + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
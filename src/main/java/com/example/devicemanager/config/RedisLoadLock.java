@@ -0,0 +1,94 @@
+package com.example.devicemanager.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cross-node {@link TwoLevelCache.LoadLock}: {@code SET key token NX PX lease} on
+ * {@code device-cache:load-lock:<cache>:<key>}. The lease bounds how long other nodes wait for a
+ * holder that died, and the token makes sure a holder only ever deletes its own lock.
+ * <p>
+ * If Redis cannot be reached, or the {@link CacheCircuitBreaker} bypasses it, the lock is treated as
+ * acquired, so loads fall back to per-node coalescing instead of failing.
+ */
+@Slf4j
+public class RedisLoadLock implements TwoLevelCache.LoadLock {
+
+    private static final String KEY_PREFIX = "device-cache:load-lock:";
+
+    private static final String NO_LOCK = "";
+
+    private static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final Duration lease;
+
+    private final Duration pollInterval;
+
+    private final CacheCircuitBreaker breaker;
+
+    public RedisLoadLock(StringRedisTemplate redisTemplate, Duration lease, Duration pollInterval, CacheCircuitBreaker breaker) {
+        this.redisTemplate = redisTemplate;
+        this.lease = lease;
+        this.pollInterval = pollInterval;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public String tryLock(String cacheName, String key) {
+        String token = UUID.randomUUID().toString();
+        return breaker.execute(cacheName, "lock", () -> {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey(cacheName, key), token, lease);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        }, () -> NO_LOCK);
+    }
+
+    @Override
+    public void unlock(String cacheName, String key, String token) {
+        if (NO_LOCK.equals(token)) {
+            return;
+        }
+        try {
+            redisTemplate.execute(UNLOCK, List.of(lockKey(cacheName, key)), token);
+        } catch (RuntimeException e) {
+            // The lease releases it
+            log.warn("Could not release the load lock for {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void await(String cacheName, String key, BooleanSupplier loaded) {
+        String lockKey = lockKey(cacheName, key);
+        long deadline = System.nanoTime() + lease.toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(pollInterval.toNanos());
+                if (loaded.getAsBoolean()) {
+                    return;
+                }
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(lockKey))) {
+                    // Released: the value may have been stored just before
+                    loaded.getAsBoolean();
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stopped waiting for the load of {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    private static String lockKey(String cacheName, String key) {
+        return KEY_PREFIX + cacheName + ":" + key;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.devicemanager.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "device.datasource")
+public class ReplicaDataSourceProperties {
+
+    /**
+     * Read replicas used by read-only transactions. When empty, everything runs on spring.datasource.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * A replica further behind the primary than this (or not replicating at all) is skipped until it catches up.
+     */
+    private Duration maxReplicationLag = Duration.ofSeconds(5);
+
+    /**
+     * How often the replicas' lag is checked; a replica can fall behind by up to this much more before it is skipped.
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * Connection pool size per replica; the pools are fixed size and use spring.datasource.hikari.connection-timeout.
+     */
+    private int maximumPoolSize = 10;
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.devicemanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polls {@code SHOW REPLICA STATUS} on every replica and keeps the list of replicas that are
+ * replicating and within {@code device.datasource.max-replication-lag}. Owns the replica pools.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements DisposableBean {
+
+    private final Map<String, DataSource> replicas;
+
+    private final Duration maxLag;
+
+    private final Duration checkInterval;
+
+    // Empty until the first check: reads start on the primary
+    private volatile List<String> healthyReplicas = List.of();
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, Duration maxLag, Duration checkInterval) {
+        this.replicas = Map.copyOf(replicas);
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    /**
+     * How far a replica that reads are routed to can be behind the primary: the maximum lag, plus what
+     * it can fall behind until the next check notices, plus a second as the lag is reported in whole
+     * seconds. A write is visible to every routed read this long after its commit.
+     */
+    public Duration getStalenessBound() {
+        return maxLag.plus(checkInterval).plusSeconds(1);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${device.datasource.lag-check-interval:5s}")
+    public void checkReplicationLag() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, replica) -> {
+            Long lagSeconds;
+            try {
+                lagSeconds = replicationLagSeconds(replica);
+            } catch (RuntimeException e) {
+                log.warn("Replica {} lag check failed, routing its reads to the primary: {}", name, e.getMessage());
+                return;
+            }
+            if (lagSeconds == null) {
+                log.warn("Replica {} is not replicating, routing its reads to the primary", name);
+            } else if (lagSeconds > maxLag.toSeconds()) {
+                log.warn("Replica {} is {}s behind (max {}s), routing its reads to the primary", name, lagSeconds, maxLag.toSeconds());
+            } else {
+                healthy.add(name);
+            }
+        });
+        healthy.sort(null);
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    /**
+     * @return seconds behind the primary, or {@code null} when replication is not running
+     */
+    protected Long replicationLagSeconds(DataSource replica) {
+        return new JdbcTemplate(replica).query("SHOW REPLICA STATUS", rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long lag = rs.getLong("Seconds_Behind_Master");
+            return rs.wasNull() ? null : lag;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        replicas.values().forEach(replica -> {
+            if (replica instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.devicemanager.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "device.request-log", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(RequestLogProperties.class)
+public class RequestLogConfig {
+
+    @Bean
+    public RequestLogger requestLogger(RequestLogProperties properties) {
+        return new RequestLogger(properties);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public RequestLogFilter requestLogFilter(RequestLogger requestLogger) {
+        return new RequestLogFilter(requestLogger);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveRequestLogFilter reactiveRequestLogFilter(RequestLogger requestLogger) {
+        return new ReactiveRequestLogFilter(requestLogger);
+    }
+}
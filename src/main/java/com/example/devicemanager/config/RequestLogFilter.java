@@ -0,0 +1,47 @@
+package com.example.devicemanager.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Times each request on the servlet stack and hands it to the {@link RequestLogger}. Streamed
+ * exports run as async requests: they are logged when the async dispatch completes, not when the
+ * controller returns.
+ */
+@RequiredArgsConstructor
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    private static final String STARTED_ATTRIBUTE = RequestLogFilter.class.getName() + ".started";
+
+    private final RequestLogger requestLogger;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (request.getAttribute(STARTED_ATTRIBUTE) == null) {
+            request.setAttribute(STARTED_ATTRIBUTE, System.nanoTime());
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!isAsyncStarted(request)) {
+                long started = (Long) request.getAttribute(STARTED_ATTRIBUTE);
+                requestLogger.log(request.getMethod(), request.getRequestURI(), response.getStatus(),
+                        System.nanoTime() - started,
+                        RequestLogger.deviceId(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)));
+            }
+        }
+    }
+}
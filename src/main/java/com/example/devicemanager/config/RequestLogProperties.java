@@ -0,0 +1,28 @@
+package com.example.devicemanager.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "device.request-log")
+public class RequestLogProperties {
+
+    /**
+     * Logs one line per sampled request, with method, path, status, latency and device id as key-value pairs.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Share of ordinary requests that are logged. Server errors and slow requests are always logged.
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Requests taking at least this long are always logged, at WARN.
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+}
@@ -0,0 +1,58 @@
+package com.example.devicemanager.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the per-request log line for both web stacks. Only a sample of ordinary requests is logged;
+ * server errors and slow requests always are. The fields are attached as key-value pairs, so
+ * structured encoders emit them as separate fields.
+ */
+@Slf4j
+public class RequestLogger {
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    public RequestLogger(RequestLogProperties properties) {
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    public void log(String method, String path, int status, long elapsedNanos, @Nullable String deviceId) {
+        boolean notable = status >= 500 || elapsedNanos >= slowThresholdNanos;
+        if (!notable && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        Level level = notable ? Level.WARN : Level.INFO;
+        if (!log.isEnabledForLevel(level)) {
+            return;
+        }
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        LoggingEventBuilder event = log.atLevel(level)
+                .addKeyValue("method", method)
+                .addKeyValue("path", path)
+                .addKeyValue("status", status)
+                .addKeyValue("latencyMs", latencyMs);
+        if (deviceId != null) {
+            event = event.addKeyValue("deviceId", deviceId);
+        }
+        event.addKeyValue("sampled", !notable)
+                .log("{} {} {} {} ms", method, path, status, latencyMs);
+    }
+
+    /**
+     * @return the {@code {id}} path variable of the matched handler, if any
+     */
+    @Nullable
+    static String deviceId(@Nullable Object uriTemplateVariables) {
+        return uriTemplateVariables instanceof Map<?, ?> variables && variables.get("id") instanceof String id ? id : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.devicemanager.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the application's own pools, following {@code spring.threads.virtual.enabled}
+ * like the executors Spring Boot configures.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * @return a factory of virtual threads, or of daemon platform threads, named {@code prefix} plus a counter
+     */
+    public static ThreadFactory of(Environment environment, String prefix) {
+        return Threading.VIRTUAL.isActive(environment)
+                ? Thread.ofVirtual().name(prefix, 1).factory()
+                : Thread.ofPlatform().name(prefix, 1).daemon(true).factory();
+    }
+}
@@ -0,0 +1,593 @@
+package com.example.devicemanager.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * A bounded in-process Caffeine tier (L1) in front of a shared cache, normally Redis (L2).
+ * <p>
+ * Reads try L1, then L2, and copy L2 hits into L1. Writes go to both tiers and are announced through
+ * the {@link InvalidationPublisher} so that other nodes drop their L1 copy and re-read it from L2.
+ * L1 is keyed by the key's string form, which is also what travels in invalidation messages.
+ * <p>
+ * Loads through {@link #get(Object, Callable)} ({@code @Cacheable(sync = true)}) are single-flight:
+ * concurrent misses for the same key on this node wait for one load. With a {@link LoadLock}, nodes
+ * also coordinate through Redis and only the lock holder runs the loader while the others wait for
+ * its value to appear in L2.
+ * <p>
+ * With {@link RefreshAhead} and a {@linkplain #setRefreshLoader refresh loader}, a
+ * {@link #get(Object, Callable)} hit that falls within the refresh window before the entry's L2 expiry
+ * still returns the cached value, and reloads the entry in the background so that keys which are read
+ * often are replaced before they expire instead of missing. L2 hits learn the remaining time to live
+ * in the same round trip as the value, through the {@link SharedBatch}.
+ * <p>
+ * {@link #getAll} serves several keys with at most one round trip to L2 for the lookups and one for
+ * storing what the loader returned, through the {@link SharedBatch} when there is one.
+ * <p>
+ * Lookups are counted per tier as {@code cache.tier.gets{cache,tier,result}}, with
+ * {@code cache.tier.hit.ratio{cache,tier}} and the L1 size as gauges. {@code cache.loads{cache}}
+ * counts loader calls and {@code cache.loads.coalesced{cache,scope=local|remote}} the misses that
+ * were served by another caller's load instead, {@code cache.refreshes{cache,result}} the background
+ * reloads.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+
+    static final String L1 = "l1";
+    static final String L2 = "l2";
+
+    @FunctionalInterface
+    public interface InvalidationPublisher {
+        /**
+         * @param key string form of the changed key, or {@code null} when the whole cache was cleared
+         */
+        void publish(String cacheName, @Nullable String key);
+    }
+
+    public interface LoadLock {
+        /**
+         * @return a token to release the lock with, or {@code null} if another node holds it
+         */
+        @Nullable
+        String tryLock(String cacheName, String key);
+
+        void unlock(String cacheName, String key, String token);
+
+        /**
+         * Waits until the lock is released or its lease runs out, returning early once {@code loaded} holds.
+         */
+        void await(String cacheName, String key, BooleanSupplier loaded);
+    }
+
+    /**
+     * @param window     how long before its L2 expiry a read triggers a reload of the entry
+     * @param timeToLive the L2 time to live of entries this cache writes
+     * @param executor   runs the reloads
+     */
+    public record RefreshAhead(Duration window,
+                               RedisCacheWriter.TtlFunction timeToLive,
+                               Executor executor) {
+    }
+
+    /**
+     * Multi-key access to the shared tier. Failures are handled by the caller.
+     */
+    public interface SharedBatch {
+        /**
+         * A value read from the shared tier with its remaining time to live, {@code null} if unknown.
+         */
+        record TimedValue(Object value, @Nullable Duration timeToLive) {
+        }
+
+        /**
+         * @return the values in the order of {@code keys}, {@code null} for misses
+         */
+        List<Object> getAll(String cacheName, List<?> keys);
+
+        /**
+         * Reads one value and its remaining time to live in a single round trip.
+         *
+         * @return {@code null} on a miss
+         */
+        @Nullable
+        TimedValue getWithTimeToLive(String cacheName, Object key);
+
+        void putAll(String cacheName, Map<?, ?> values);
+    }
+
+    /**
+     * What L1 holds: the value and the wall-clock time (millis) from which a read reloads it.
+     */
+    private record Entry(Object value, long refreshAt) {
+    }
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache shared;
+    private final InvalidationPublisher publisher;
+
+    @Nullable
+    private final LoadLock loadLock;
+
+    @Nullable
+    private final RefreshAhead refreshAhead;
+
+    @Nullable
+    private final SharedBatch sharedBatch;
+
+    @Nullable
+    private volatile Function<Object, Object> refreshLoader;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> loadsInFlight = new ConcurrentHashMap<>();
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter loads;
+    private final Counter coalescedLocal;
+    private final Counter coalescedRemote;
+    private final Counter refreshed;
+    private final Counter refreshFailed;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         Cache shared,
+                         InvalidationPublisher publisher,
+                         @Nullable LoadLock loadLock,
+                         MeterRegistry meterRegistry) {
+        this(name, local, shared, publisher, loadLock, null, null, meterRegistry);
+    }
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         Cache shared,
+                         InvalidationPublisher publisher,
+                         @Nullable LoadLock loadLock,
+                         @Nullable RefreshAhead refreshAhead,
+                         @Nullable SharedBatch sharedBatch,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.publisher = publisher;
+        this.loadLock = loadLock;
+        this.refreshAhead = refreshAhead;
+        this.sharedBatch = sharedBatch;
+
+        l1Hits = gets(meterRegistry, L1, "hit");
+        l1Misses = gets(meterRegistry, L1, "miss");
+        l2Hits = gets(meterRegistry, L2, "hit");
+        l2Misses = gets(meterRegistry, L2, "miss");
+        hitRatio(meterRegistry, L1, l1Hits, l1Misses);
+        hitRatio(meterRegistry, L2, l2Hits, l2Misses);
+        loads = Counter.builder("cache.loads").tag("cache", name).register(meterRegistry);
+        coalescedLocal = coalesced(meterRegistry, "local");
+        coalescedRemote = coalesced(meterRegistry, "remote");
+        refreshed = refreshes(meterRegistry, "success");
+        refreshFailed = refreshes(meterRegistry, "failure");
+        Gauge.builder("cache.tier.size", local, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+                .tag("cache", name)
+                .tag("tier", L1)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sets what refresh-ahead reloads entries with: the value of a key, or {@code null} if it no longer
+     * exists. Refreshes do not replay the {@code valueLoader} of the read that found the entry due, as
+     * that would re-enter the caching proxy of the method it was captured from. Until a loader is set,
+     * due entries are only reloaded when they miss.
+     */
+    public void setRefreshLoader(Function<Object, Object> refreshLoader) {
+        this.refreshLoader = refreshLoader;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper get(Object key) {
+        Entry entry = lookup(key, localKey(key));
+        return entry != null ? new SimpleValueWrapper(entry.value()) : null;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Entry entry = lookup(key, localKey);
+        if (entry != null) {
+            if (entry.refreshAt() <= System.currentTimeMillis()) {
+                refresh(key, localKey, entry);
+            }
+            return (T) entry.value();
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loadsInFlight.putIfAbsent(localKey, load);
+        if (inFlight != null) {
+            coalescedLocal.increment();
+            return (T) await(inFlight);
+        }
+        try {
+            // A load that finished between our miss and claiming the key has already filled L1
+            Entry loaded = (Entry) local.getIfPresent(localKey);
+            Object value = loaded != null ? loaded.value() : loadOnce(key, localKey, valueLoader);
+            load.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(localKey, load);
+        }
+    }
+
+    /**
+     * Looks up several keys: in L1, then the remaining ones in L2, then whatever is still missing through
+     * {@code loader}, whose values are stored in both tiers. Like any load, that store publishes no
+     * invalidation. Keys found nowhere, not even by the loader, are absent from the result.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, V> found = new LinkedHashMap<>();
+        List<K> notLocal = new ArrayList<>();
+        for (K key : keys) {
+            Entry entry = (Entry) local.getIfPresent(localKey(key));
+            if (entry != null) {
+                l1Hits.increment();
+                found.put(key, (V) entry.value());
+            } else {
+                l1Misses.increment();
+                notLocal.add(key);
+            }
+        }
+        if (notLocal.isEmpty()) {
+            return found;
+        }
+
+        List<Object> values = sharedGetAll(notLocal);
+        List<K> missing = new ArrayList<>();
+        for (int i = 0; i < notLocal.size(); i++) {
+            K key = notLocal.get(i);
+            Object value = values.get(i);
+            if (value != null) {
+                l2Hits.increment();
+                found.put(key, (V) value);
+                // Refreshing ahead would take a PTTL per key; these entries just live out their L1 time to live
+                local.put(localKey(key), new Entry(value, NEVER));
+            } else {
+                l2Misses.increment();
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        loads.increment();
+        Map<K, V> loaded = loader.apply(missing);
+        if (!loaded.isEmpty()) {
+            sharedPutAll(loaded);
+            loaded.forEach((key, value) -> local.put(localKey(key), new Entry(value, refreshAtAfterWrite(key, value))));
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    @Override
+    public void put(Object key, @Nullable Object value) {
+        shared.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) {
+            local.put(localKey, new Entry(value, refreshAtAfterWrite(key, value)));
+        } else {
+            local.invalidate(localKey);
+        }
+        publisher.publish(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        shared.evict(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        publisher.publish(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        shared.clear();
+        local.invalidateAll();
+        publisher.publish(name, null);
+    }
+
+    private List<Object> sharedGetAll(List<?> keys) {
+        if (sharedBatch != null) {
+            try {
+                return sharedBatch.getAll(name, keys);
+            } catch (RuntimeException e) {
+                log.warn("Could not read {} keys of cache {} from the shared tier, loading them: {}", keys.size(), name, e.getMessage());
+                return new ArrayList<>(Collections.nCopies(keys.size(), null));
+            }
+        }
+        List<Object> values = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            ValueWrapper wrapper = shared.get(key);
+            values.add(wrapper != null ? wrapper.get() : null);
+        }
+        return values;
+    }
+
+    private void sharedPutAll(Map<?, ?> values) {
+        if (sharedBatch != null) {
+            try {
+                sharedBatch.putAll(name, values);
+            } catch (RuntimeException e) {
+                log.warn("Could not store {} loaded keys of cache {} in the shared tier: {}", values.size(), name, e.getMessage());
+            }
+            return;
+        }
+        values.forEach(shared::put);
+    }
+
+    @Nullable
+    private Entry lookup(Object key, String localKey) {
+        Entry entry = (Entry) local.getIfPresent(localKey);
+        if (entry != null) {
+            l1Hits.increment();
+            return entry;
+        }
+        l1Misses.increment();
+
+        entry = sharedLookup(key);
+        if (entry == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        local.put(localKey, entry);
+        return entry;
+    }
+
+    @Nullable
+    private Entry sharedLookup(Object key) {
+        if (refreshAhead == null || sharedBatch == null) {
+            ValueWrapper wrapper = shared.get(key);
+            return wrapper != null && wrapper.get() != null ? new Entry(wrapper.get(), NEVER) : null;
+        }
+        SharedBatch.TimedValue timed;
+        try {
+            timed = sharedBatch.getWithTimeToLive(name, key);
+        } catch (RuntimeException e) {
+            log.warn("Could not read {} of cache {} from the shared tier, loading it: {}", key, name, e.getMessage());
+            return null;
+        }
+        if (timed == null || timed.value() == null) {
+            return null;
+        }
+        if (timed.timeToLive() == null) {
+            return new Entry(timed.value(), NEVER);
+        }
+        return new Entry(timed.value(), System.currentTimeMillis() + timed.timeToLive().minus(refreshAhead.window()).toMillis());
+    }
+
+    /**
+     * Reloads a due entry in the background. The first reader past the refresh point claims it by
+     * replacing the L1 entry with one that is never due, so one read per entry triggers at most one
+     * reload; with a {@link LoadLock}, a key that another node is already reloading is left to that node.
+     */
+    private void refresh(Object key, String localKey, Entry due) {
+        Function<Object, Object> loader = refreshLoader;
+        Entry claimed = new Entry(due.value(), NEVER);
+        if (loader == null || !local.asMap().replace(localKey, due, claimed)) {
+            return;
+        }
+        try {
+            refreshAhead.executor().execute(() -> {
+                try {
+                    String token = loadLock != null ? loadLock.tryLock(name, localKey) : null;
+                    if (loadLock != null && token == null) {
+                        return;
+                    }
+                    try {
+                        reloadAndStore(key, localKey, claimed, loader);
+                        refreshed.increment();
+                    } finally {
+                        if (token != null) {
+                            loadLock.unlock(name, localKey, token);
+                        }
+                    }
+                } catch (RuntimeException | Error e) {
+                    refreshFailed.increment();
+                    log.warn("Could not refresh {} in cache {}, keeping the cached value until it expires: {}",
+                            localKey, name, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refreshes are backed up; the entry is reloaded on its next miss instead
+        }
+    }
+
+    /**
+     * Stores a reloaded value only while L1 still holds the {@code claimed} entry. A put, an eviction
+     * or another node's invalidation during the reload replaces or removes it, and the reloaded value
+     * may be older than that write. L2 is written before the final check and evicted again if the
+     * claim was lost in between, which leaves a miss rather than an outdated value.
+     */
+    private void reloadAndStore(Object key, String localKey, Entry claimed, Function<Object, Object> loader) {
+        loads.increment();
+        Object value = loader.apply(key);
+        if (local.getIfPresent(localKey) != claimed) {
+            return;
+        }
+        if (value == null) {
+            // Deleted since it was cached; the delete has evicted L2 already
+            local.asMap().remove(localKey, claimed);
+            return;
+        }
+        shared.put(key, value);
+        if (!local.asMap().replace(localKey, claimed, new Entry(value, refreshAtAfterWrite(key, value)))) {
+            shared.evict(key);
+        }
+    }
+
+    private long refreshAtAfterWrite(Object key, Object value) {
+        if (refreshAhead == null) {
+            return NEVER;
+        }
+        Duration untilRefresh = refreshAhead.timeToLive().getTimeToLive(key, value).minus(refreshAhead.window());
+        return System.currentTimeMillis() + untilRefresh.toMillis();
+    }
+
+    @Nullable
+    private Object loadOnce(Object key, String localKey, Callable<?> valueLoader) {
+        if (loadLock == null) {
+            return loadAndStore(key, localKey, valueLoader);
+        }
+        String token = loadLock.tryLock(name, localKey);
+        if (token != null) {
+            try {
+                return loadAndStore(key, localKey, valueLoader);
+            } finally {
+                loadLock.unlock(name, localKey, token);
+            }
+        }
+
+        // Another node is loading this key: wait for its value to reach L2
+        ValueWrapper[] loaded = new ValueWrapper[1];
+        loadLock.await(name, localKey, () -> (loaded[0] = shared.get(key)) != null && loaded[0].get() != null);
+        if (loaded[0] != null && loaded[0].get() != null) {
+            coalescedRemote.increment();
+            // Written just now by the lock holder, so its time to live is close to a fresh write's
+            local.put(localKey, new Entry(loaded[0].get(), refreshAtAfterWrite(key, loaded[0].get())));
+            return loaded[0].get();
+        }
+        // The holder failed or took longer than its lease
+        return loadAndStore(key, localKey, valueLoader);
+    }
+
+    @Nullable
+    private Object loadAndStore(Object key, String localKey, Callable<?> valueLoader) {
+        Object value;
+        try {
+            loads.increment();
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (value != null) {
+            shared.put(key, value);
+            local.put(localKey, new Entry(value, refreshAtAfterWrite(key, value)));
+        }
+        return value;
+    }
+
+    @Nullable
+    private static Object await(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops entries from this node's L1 only; called when another node announces a write.
+     */
+    public void evictLocal(@Nullable String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private static String localKey(Object key) {
+        return key.toString();
+    }
+
+    private Counter gets(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.tier.gets")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter coalesced(MeterRegistry meterRegistry, String scope) {
+        return Counter.builder("cache.loads.coalesced")
+                .tag("cache", name)
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    private Counter refreshes(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.refreshes")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void hitRatio(MeterRegistry meterRegistry, String tier, Counter hits, Counter misses) {
+        Gauge.builder("cache.tier.hit.ratio", () -> {
+                    double total = hits.count() + misses.count();
+                    return total == 0 ? 0 : hits.count() / total;
+                })
+                .tag("cache", name)
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+}
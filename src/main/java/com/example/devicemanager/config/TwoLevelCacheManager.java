@@ -0,0 +1,193 @@
+package com.example.devicemanager.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps every cache of the shared (Redis) {@link CacheManager} in a {@link TwoLevelCache}, and keeps
+ * the in-process tiers of all nodes coherent over Redis pub/sub: each write is published on
+ * {@code device.cache.invalidation-channel} and every other node evicts the key from its L1.
+ * Messages carry a per-node id so a node ignores its own.
+ * <p>
+ * Caches listed in {@code device.cache.refresh-ahead} reload hot entries on a small shared pool before
+ * they expire in Redis, through the loader set with {@link TwoLevelCache#setRefreshLoader}; their
+ * lookups in Redis pipeline a PTTL with the GET. Multi-key lookups reach Redis through a
+ * {@link RedisCacheBatch}.
+ * <p>
+ * Every Redis call on the request path goes through the {@link CacheCircuitBreaker}, so that the
+ * caches act as empty while Redis is slow or unreachable. The evictions it skipped are replayed on a
+ * single background thread once it closes.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, DisposableBean {
+
+    private static final int REFRESH_QUEUE_CAPACITY = 1000;
+
+    // One replay at most is queued per cache
+    private static final int REPLAY_QUEUE_CAPACITY = 100;
+
+    record Invalidation(String origin, String cache, @Nullable String key) {
+    }
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    private final CacheManager shared;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final DeviceCacheProperties properties;
+
+    private final CacheCircuitBreaker breaker;
+
+    private final MeterRegistry meterRegistry;
+
+    @Nullable
+    private final TwoLevelCache.LoadLock loadLock;
+
+    @Nullable
+    private final ThreadPoolExecutor refreshExecutor;
+
+    private final RedisCacheBatch sharedBatch;
+
+    private final ThreadPoolExecutor replayExecutor;
+
+    public TwoLevelCacheManager(CacheManager shared,
+                                StringRedisTemplate redisTemplate,
+                                RedisSerializer<Object> valueSerializer,
+                                ObjectMapper objectMapper,
+                                DeviceCacheProperties properties,
+                                CacheCircuitBreaker breaker,
+                                MeterRegistry meterRegistry,
+                                ThreadFactory refreshThreadFactory,
+                                ThreadFactory replayThreadFactory) {
+        this.shared = shared;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.breaker = breaker;
+        this.meterRegistry = meterRegistry;
+        DeviceCacheProperties.LoadLock lock = properties.getLoadLock();
+        this.loadLock = lock.isEnabled()
+                ? new RedisLoadLock(redisTemplate, lock.getLease(), lock.getPollInterval(), breaker)
+                : null;
+        this.sharedBatch = new RedisCacheBatch(redisTemplate, valueSerializer, properties, breaker);
+        this.refreshExecutor = properties.getRefreshAhead().isEmpty() ? null : refreshExecutor(properties.getRefreshThreads(), refreshThreadFactory);
+        this.replayExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(REPLAY_QUEUE_CAPACITY), replayThreadFactory);
+    }
+
+    @Override
+    @Nullable
+    public TwoLevelCache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache sharedCache = shared.getCache(name);
+        if (sharedCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new TwoLevelCache(
+                n,
+                Caffeine.newBuilder()
+                        .maximumSize(properties.getL1MaximumSize())
+                        .expireAfterWrite(properties.getL1TimeToLive())
+                        .build(),
+                new CircuitBreakingCache(sharedCache, breaker, replayExecutor),
+                this::publish,
+                loadLock,
+                refreshAhead(n),
+                sharedBatch,
+                meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(shared.getCacheNames());
+        names.addAll(caches.keySet());
+        return names;
+    }
+
+    @Override
+    public void onMessage(Message message, @Nullable byte[] pattern) {
+        Invalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(message.getBody(), Invalidation.class);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(invalidation.origin())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.cache());
+        if (cache != null) {
+            cache.evictLocal(invalidation.key());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        replayExecutor.shutdownNow();
+    }
+
+    @Nullable
+    private TwoLevelCache.RefreshAhead refreshAhead(String cacheName) {
+        Duration window = properties.getRefreshAhead().get(cacheName);
+        if (window == null || refreshExecutor == null) {
+            return null;
+        }
+        return new TwoLevelCache.RefreshAhead(window, properties.timeToLiveOf(cacheName), refreshExecutor);
+    }
+
+    private static ThreadPoolExecutor refreshExecutor(int threads, ThreadFactory threadFactory) {
+        // Bounded even on virtual threads: the thread count caps the reloads running against the database
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(REFRESH_QUEUE_CAPACITY), threadFactory);
+    }
+
+    private void publish(String cacheName, @Nullable String key) {
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(new Invalidation(nodeId, cacheName, key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Skipped while the breaker is open: other nodes still drop the entry when their L1 time to live
+        // runs out, and writes do not wait on a Redis that is known to be down
+        breaker.run(cacheName, "publish",
+                () -> redisTemplate.convertAndSend(properties.getInvalidationChannel(), message),
+                () -> log.debug("Did not publish invalidation for cache {} key {}", cacheName, key));
+    }
+}
@@ -1,98 +1,338 @@
 package com.example.devicemanager.controller;
 
+import com.example.devicemanager.dto.BulkImportResultDTO;
 import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
 import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.SerializedDeviceDTO;
+import com.example.devicemanager.dto.StateChangeDTO;
+import com.example.devicemanager.exception.PreconditionFailedException;
 import com.example.devicemanager.model.State;
+import com.example.devicemanager.service.DeviceAccessTracker;
+import com.example.devicemanager.service.DeviceExportService;
+import com.example.devicemanager.service.DeviceImportService;
+import com.example.devicemanager.service.DeviceListGeneration;
+import com.example.devicemanager.service.DeviceResponseCache;
 import com.example.devicemanager.service.DeviceService;
 import com.example.devicemanager.service.DeviceMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/devices")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 @Validated
 @Slf4j
 public class DeviceController {
 
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    static final String GZIP_ETAG_SUFFIX = "-gz";
+
     private final DeviceService deviceService;
+    private final DeviceImportService deviceImportService;
+    private final DeviceExportService deviceExportService;
     private final DeviceMapper deviceMapper;
+    private final DeviceAccessTracker deviceAccessTracker;
+    private final DeviceListGeneration deviceListGeneration;
+    private final DeviceResponseCache deviceResponseCache;
 
     @Operation(summary = "Create a new device")
     @PostMapping
     public ResponseEntity<DeviceDTO> createDevice(@Valid @RequestBody CreateDeviceDTO deviceDTO) {
-        log.info("Creating device: {}", deviceDTO.getName());
+        log.debug("Creating device: {}", deviceDTO.getName());
         DeviceDTO createdDTO = deviceService.createDevice(deviceDTO);
-        return ResponseEntity.ok(createdDTO);
+        return withETag(createdDTO);
     }
 
-    @Operation(summary = "Update existing device")
+    @Operation(summary = "Update existing device (conditional when If-Match carries the device ETag)")
     @PutMapping("/{id}")
-    public ResponseEntity<DeviceDTO> updateDevice(@PathVariable Long id, @Valid @RequestBody DeviceDTO deviceDTO) {
-        log.info("Updating device id={}", id);
-        DeviceDTO updatedDTO = deviceService.updateDevice(id, deviceDTO);
-        return ResponseEntity.ok(updatedDTO);
+    public ResponseEntity<DeviceDTO> updateDevice(
+            @PathVariable Long id,
+            @Valid @RequestBody DeviceDTO deviceDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Updating device id={}", id);
+        DeviceDTO updatedDTO = deviceService.updateDevice(id, deviceDTO, expectedVersion(ifMatch));
+        return withETag(updatedDTO);
+    }
+
+    @Operation(summary = "Partially update a device (JSON Merge Patch: omitted or null fields are left unchanged)")
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<DeviceDTO> patchDevice(
+            @PathVariable Long id,
+            @RequestBody DeviceDTO patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Patching device id={}", id);
+        DeviceDTO updatedDTO = deviceService.updateDevice(id, patch, expectedVersion(ifMatch));
+        return withETag(updatedDTO);
+    }
+
+    @Operation(summary = "Change device state in a single guarded statement (409 when claiming a device already in use)")
+    @PutMapping("/{id}/state")
+    public ResponseEntity<Void> changeState(
+            @PathVariable Long id,
+            @Valid @RequestBody StateChangeDTO stateChange,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Changing device id={} state to {}", id, stateChange.getState());
+        deviceService.changeState(id, stateChange.getState(), expectedVersion(ifMatch));
+        return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Get device by id")
+    @Operation(summary = "Get device by id (304 when If-None-Match carries the current device ETag)")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = DeviceDTO.class)))
     @GetMapping("/{id}")
-    public ResponseEntity<DeviceDTO> getDevice(@PathVariable Long id) {
-        log.info("Fetching device id={}", id);
+    public ResponseEntity<?> getDevice(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.debug("Fetching device id={}", id);
+        if (deviceResponseCache.isEnabled()) {
+            SerializedDeviceDTO serialized = deviceResponseCache.getDevice(id);
+            deviceAccessTracker.recordAccess(id);
+            return withETag(serialized, acceptsGzip(acceptEncoding));
+        }
         DeviceDTO dto = deviceService.getDevice(id);
-        return ResponseEntity.ok(dto);
+        deviceAccessTracker.recordAccess(id);
+        // The device comes from the cache; a matching If-None-Match turns this into a 304 without a body
+        return withETag(dto);
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get several devices by id in one request (unknown ids are left out; max 500)")
+    public List<DeviceDTO> getDevices(
+            @Parameter(description = "Comma separated device ids; use POST /api/devices/lookup for long lists")
+            @RequestParam List<Long> ids
+    ) {
+        return lookupDevices(ids);
+    }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Get several devices by the ids in the request body (unknown ids are left out; max 500)")
+    public List<DeviceDTO> lookupDevices(@RequestBody List<Long> ids) {
+        log.debug("Fetching devices, count={}", ids.size());
+        List<DeviceDTO> devices = deviceService.getDevices(ids);
+        devices.forEach(device -> deviceAccessTracker.recordAccess(device.getId()));
+        return devices;
     }
 
     @GetMapping
-    @Operation(summary = "Get paged list of devices")
-    public Page<DeviceDTO> getPagedDevices(
+    @Operation(summary = "Get paged list of devices (offset pagination, includes total count; supports If-None-Match)")
+    public ResponseEntity<Page<DeviceDTO>> getPagedDevices(
             @Parameter(description = "Page number (default = 0)")
             @RequestParam(defaultValue = "0") int page,
 
             @Parameter(description = "Page size (default = 10, max = 20)")
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+
+            WebRequest request
+    ) {
+        String etag = listETag("");
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return withListETag(etag).body(deviceService.listDevices(PageRequest.of(page, size)));
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Get devices using keyset (cursor) pagination (supports If-None-Match)")
+    public ResponseEntity<CursorPageDTO<DeviceDTO>> getDevicesAfterCursor(
+            @Parameter(description = "Opaque cursor returned as nextCursor by the previous page (omit for the first page)")
+            @RequestParam(required = false) String after,
+
+            @Parameter(description = "Page size (default = 10, max = 20)")
+            @RequestParam(defaultValue = "10") int size,
+
+            WebRequest request
     ) {
-        return deviceService.listDevices(PageRequest.of(page, size));
+        String etag = listETag("");
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return withListETag(etag).body(deviceService.listDevicesAfter(after, size));
     }
 
-    @Operation(summary = "Get devices by brand")
-    @GetMapping("/brand/{brand}")
-    public ResponseEntity<List<DeviceDTO>> getDevicesByBrand(@PathVariable String brand) {
-        log.info("Fetching devices by brand={}", brand);
-        List<DeviceDTO> dtos = deviceService.getDevicesByBrand(brand);
-        return ResponseEntity.ok(dtos);
+    @Operation(summary = "Get devices by brand (streamed JSON array; supports If-None-Match)")
+    @GetMapping(value = "/brand/{brand}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDevicesByBrand(@PathVariable String brand, WebRequest request) {
+        log.debug("Fetching devices by brand={}", brand);
+        return stream(request, "", MediaType.APPLICATION_JSON,
+                out -> deviceExportService.writeDevicesByBrand(brand, DeviceExportService.Format.JSON_ARRAY, out));
     }
 
-    @Operation(summary = "Get devices by state")
-    @GetMapping("/state/{state}")
-    public ResponseEntity<List<DeviceDTO>> getDevicesByState(@PathVariable State state) {
-        log.info("Fetching devices by state={}", state);
-        List<DeviceDTO> dtos = deviceService.getDevicesByState(state);
-        return ResponseEntity.ok(dtos);
+    @Operation(summary = "Get devices by brand (streamed NDJSON; supports If-None-Match)")
+    @GetMapping(value = "/brand/{brand}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDevicesByBrandNdjson(@PathVariable String brand, WebRequest request) {
+        log.debug("Fetching devices by brand={} as NDJSON", brand);
+        return stream(request, "-ndjson", MediaType.APPLICATION_NDJSON,
+                out -> deviceExportService.writeDevicesByBrand(brand, DeviceExportService.Format.NDJSON, out));
     }
 
-    @Operation(summary = "Delete device by id")
+    @Operation(summary = "Get devices by state (streamed JSON array; supports If-None-Match)")
+    @GetMapping(value = "/state/{state}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDevicesByState(@PathVariable State state, WebRequest request) {
+        log.debug("Fetching devices by state={}", state);
+        return stream(request, "", MediaType.APPLICATION_JSON,
+                out -> deviceExportService.writeDevicesByState(state, DeviceExportService.Format.JSON_ARRAY, out));
+    }
+
+    @Operation(summary = "Get devices by state (streamed NDJSON; supports If-None-Match)")
+    @GetMapping(value = "/state/{state}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDevicesByStateNdjson(@PathVariable State state, WebRequest request) {
+        log.debug("Fetching devices by state={} as NDJSON", state);
+        return stream(request, "-ndjson", MediaType.APPLICATION_NDJSON,
+                out -> deviceExportService.writeDevicesByState(state, DeviceExportService.Format.NDJSON, out));
+    }
+
+    @Operation(summary = "Delete device by id (conditional when If-Match carries the device ETag)")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteDevice(@PathVariable Long id) {
-        log.info("Deleting device id={}", id);
-        deviceService.deleteDevice(id);
+    public ResponseEntity<Void> deleteDevice(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Deleting device id={}", id);
+        deviceService.deleteDevice(id, expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
     @Operation(summary = "Create multiple devices in bulk")
     @PostMapping("/bulk")
     public ResponseEntity<List<DeviceDTO>> createDevicesBulk(@Valid @RequestBody List<DeviceDTO> deviceDTOs) {
-        log.info("Creating bulk devices, count={}", deviceDTOs.size());
+        log.debug("Creating bulk devices, count={}", deviceDTOs.size());
         List<DeviceDTO> createdDevices = deviceService.createDevicesBulk(deviceDTOs);
         return ResponseEntity.ok(createdDevices);
     }
+
+    @Operation(summary = "Import devices from an NDJSON stream, one device per line, committed in chunks")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkImportResultDTO> importDevices(InputStream ndjson) throws IOException {
+        log.debug("Importing devices from NDJSON stream");
+        BulkImportResultDTO result = deviceImportService.importDevices(ndjson);
+        return ResponseEntity.ok(result);
+    }
+
+    private static ResponseEntity<DeviceDTO> withETag(DeviceDTO dto) {
+        // The entity version is the ETag: it changes on every committed UPDATE
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (dto.getVersion() != null) {
+            response.eTag(String.valueOf(dto.getVersion()));
+        }
+        return response.body(dto);
+    }
+
+    // The cached bytes are written as they are. The gzip body is another representation, so it gets its
+    // own strong ETag: the device ETag with GZIP_ETAG_SUFFIX, which If-Match still accepts
+    private static ResponseEntity<byte[]> withETag(SerializedDeviceDTO device, boolean gzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzipped = gzip && device.getGzip() != null;
+        if (device.getVersion() != null) {
+            response.eTag(device.getVersion() + (gzipped ? GZIP_ETAG_SUFFIX : ""));
+        }
+        if (gzipped) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(device.getGzip());
+        }
+        return response.body(device.getJson());
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        List<ETag> etags = ETag.parse(ifMatch);
+        if (etags.size() == 1 && etags.get(0).isWildcard()) {
+            return null;
+        }
+        // If-Match uses strong comparison, so weak validators never match
+        if (etags.size() != 1 || etags.get(0).weak()) {
+            throw new PreconditionFailedException("If-Match must carry a single strong device ETag");
+        }
+        String tag = etags.get(0).tag();
+        if (tag.endsWith(GZIP_ETAG_SUFFIX)) {
+            tag = tag.substring(0, tag.length() - GZIP_ETAG_SUFFIX.length());
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not carry a device ETag");
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(WebRequest request, String variant,
+                                                         MediaType contentType, StreamingResponseBody body) {
+        String etag = listETag(variant);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        // No Content-Length: the body is written row by row and sent with chunked transfer encoding
+        return withListETag(etag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(contentType)
+                .body(body);
+    }
+
+    /**
+     * Collection ETag: every device write bumps the list generation, so it identifies the content of
+     * any list, brand or state query without reading it. The generation is read before the query, so
+     * on the primary a concurrent write can only make the ETag older than the body. A replica may not
+     * have applied a write yet and answer with an older body under the new generation; such ETags
+     * stop matching once the second bump that follows the replica lag has run (see
+     * {@link DeviceListGeneration}). {@code variant} tells apart the representations served at the
+     * same URL.
+     *
+     * @return the ETag, or {@code null} while the generation is unknown (Redis bypassed)
+     */
+    private String listETag(String variant) {
+        long generation = deviceListGeneration.current();
+        return generation == DeviceListGeneration.UNKNOWN ? null : "\"list-" + generation + variant + "\"";
+    }
+
+    private static ResponseEntity.BodyBuilder withListETag(String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return etag != null ? response.eTag(etag) : response;
+    }
 }
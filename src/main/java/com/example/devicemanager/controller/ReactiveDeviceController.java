@@ -0,0 +1,228 @@
+package com.example.devicemanager.controller;
+
+import com.example.devicemanager.config.ReactiveDeviceCache;
+import com.example.devicemanager.dto.BulkImportResultDTO;
+import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.StateChangeDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.service.DeviceAccessTracker;
+import com.example.devicemanager.service.ReactiveDeviceImportService;
+import com.example.devicemanager.service.ReactiveDeviceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@code /api/devices} contract of {@link DeviceController} on WebFlux, for deployments running
+ * with {@code spring.main.web-application-type=reactive}.
+ * <p>
+ * Bodies are returned unsubscribed: for a GET whose If-None-Match matches the ETag, WebFlux answers
+ * 304 without running the query.
+ */
+@RestController
+@RequestMapping("/api/devices")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+public class ReactiveDeviceController {
+
+    private final ReactiveDeviceService deviceService;
+    private final ReactiveDeviceImportService deviceImportService;
+    private final DeviceAccessTracker deviceAccessTracker;
+    private final ReactiveDeviceCache deviceCache;
+
+    @Operation(summary = "Create a new device")
+    @PostMapping
+    public Mono<ResponseEntity<DeviceDTO>> createDevice(@Valid @RequestBody CreateDeviceDTO deviceDTO) {
+        log.debug("Creating device: {}", deviceDTO.getName());
+        return deviceService.createDevice(deviceDTO).map(ReactiveDeviceController::withETag);
+    }
+
+    @Operation(summary = "Update existing device (conditional when If-Match carries the device ETag)")
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<DeviceDTO>> updateDevice(
+            @PathVariable Long id,
+            @Valid @RequestBody DeviceDTO deviceDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Updating device id={}", id);
+        return expectedVersion(ifMatch)
+                .flatMap(version -> deviceService.updateDevice(id, deviceDTO, version.orElse(null)))
+                .map(ReactiveDeviceController::withETag);
+    }
+
+    @Operation(summary = "Partially update a device (JSON Merge Patch: omitted or null fields are left unchanged)")
+    @PatchMapping(value = "/{id}", consumes = {DeviceController.MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<DeviceDTO>> patchDevice(
+            @PathVariable Long id,
+            @RequestBody DeviceDTO patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Patching device id={}", id);
+        return expectedVersion(ifMatch)
+                .flatMap(version -> deviceService.updateDevice(id, patch, version.orElse(null)))
+                .map(ReactiveDeviceController::withETag);
+    }
+
+    @Operation(summary = "Change device state in a single guarded statement (409 when claiming a device already in use)")
+    @PutMapping("/{id}/state")
+    public Mono<ResponseEntity<Void>> changeState(
+            @PathVariable Long id,
+            @Valid @RequestBody StateChangeDTO stateChange,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Changing device id={} state to {}", id, stateChange.getState());
+        return expectedVersion(ifMatch)
+                .flatMap(version -> deviceService.changeState(id, stateChange.getState(), version.orElse(null)))
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    @Operation(summary = "Get device by id (304 when If-None-Match carries the current device ETag)")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<DeviceDTO>> getDevice(@PathVariable Long id) {
+        log.debug("Fetching device id={}", id);
+        return deviceService.getDevice(id)
+                .doOnNext(device -> deviceAccessTracker.recordAccess(id))
+                .map(ReactiveDeviceController::withETag);
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get several devices by id in one request (unknown ids are left out; max 500)")
+    public Mono<List<DeviceDTO>> getDevices(
+            @Parameter(description = "Comma separated device ids; use POST /api/devices/lookup for long lists")
+            @RequestParam List<Long> ids
+    ) {
+        return lookupDevices(ids);
+    }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Get several devices by the ids in the request body (unknown ids are left out; max 500)")
+    public Mono<List<DeviceDTO>> lookupDevices(@RequestBody List<Long> ids) {
+        log.debug("Fetching devices, count={}", ids.size());
+        return deviceService.getDevices(ids)
+                .doOnNext(devices -> devices.forEach(device -> deviceAccessTracker.recordAccess(device.getId())));
+    }
+
+    @GetMapping
+    @Operation(summary = "Get paged list of devices (offset pagination, includes total count; supports If-None-Match)")
+    public Mono<ResponseEntity<Mono<Page<DeviceDTO>>>> getPagedDevices(
+            @Parameter(description = "Page number (default = 0)")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Parameter(description = "Page size (default = 10, max = 20)")
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return listResponse("").map(response -> response.body(deviceService.listDevices(page, size)));
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Get devices using keyset (cursor) pagination (supports If-None-Match)")
+    public Mono<ResponseEntity<Mono<CursorPageDTO<DeviceDTO>>>> getDevicesAfterCursor(
+            @Parameter(description = "Opaque cursor returned as nextCursor by the previous page (omit for the first page)")
+            @RequestParam(required = false) String after,
+
+            @Parameter(description = "Page size (default = 10, max = 20)")
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return listResponse("").map(response -> response.body(deviceService.listDevicesAfter(after, size)));
+    }
+
+    @Operation(summary = "Get devices by brand (streamed JSON array; supports If-None-Match)")
+    @GetMapping(value = "/brand/{brand}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<DeviceDTO>>> getDevicesByBrand(@PathVariable String brand) {
+        log.debug("Fetching devices by brand={}", brand);
+        return stream("", MediaType.APPLICATION_JSON, deviceService.getDevicesByBrand(brand));
+    }
+
+    @Operation(summary = "Get devices by brand (streamed NDJSON; supports If-None-Match)")
+    @GetMapping(value = "/brand/{brand}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DeviceDTO>>> getDevicesByBrandNdjson(@PathVariable String brand) {
+        log.debug("Fetching devices by brand={} as NDJSON", brand);
+        return stream("-ndjson", MediaType.APPLICATION_NDJSON, deviceService.getDevicesByBrand(brand));
+    }
+
+    @Operation(summary = "Get devices by state (streamed JSON array; supports If-None-Match)")
+    @GetMapping(value = "/state/{state}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<DeviceDTO>>> getDevicesByState(@PathVariable State state) {
+        log.debug("Fetching devices by state={}", state);
+        return stream("", MediaType.APPLICATION_JSON, deviceService.getDevicesByState(state));
+    }
+
+    @Operation(summary = "Get devices by state (streamed NDJSON; supports If-None-Match)")
+    @GetMapping(value = "/state/{state}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DeviceDTO>>> getDevicesByStateNdjson(@PathVariable State state) {
+        log.debug("Fetching devices by state={} as NDJSON", state);
+        return stream("-ndjson", MediaType.APPLICATION_NDJSON, deviceService.getDevicesByState(state));
+    }
+
+    @Operation(summary = "Delete device by id (conditional when If-Match carries the device ETag)")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteDevice(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Deleting device id={}", id);
+        return expectedVersion(ifMatch)
+                .flatMap(version -> deviceService.deleteDevice(id, version.orElse(null)))
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    @Operation(summary = "Create multiple devices in bulk")
+    @PostMapping("/bulk")
+    public Mono<ResponseEntity<List<DeviceDTO>>> createDevicesBulk(@Valid @RequestBody List<DeviceDTO> deviceDTOs) {
+        log.debug("Creating bulk devices, count={}", deviceDTOs.size());
+        return deviceService.createDevicesBulk(deviceDTOs).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Import devices from an NDJSON stream, one device per line, committed in chunks")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<BulkImportResultDTO>> importDevices(@RequestBody Flux<String> lines) {
+        log.debug("Importing devices from NDJSON stream");
+        return deviceImportService.importDevices(lines).map(ResponseEntity::ok);
+    }
+
+    private static ResponseEntity<DeviceDTO> withETag(DeviceDTO dto) {
+        // The entity version is the ETag: it changes on every committed UPDATE
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (dto.getVersion() != null) {
+            response.eTag(String.valueOf(dto.getVersion()));
+        }
+        return response.body(dto);
+    }
+
+    // An invalid If-Match becomes an error signal, handled like the servlet stack's exception
+    private static Mono<Optional<Long>> expectedVersion(String ifMatch) {
+        return Mono.fromCallable(() -> Optional.ofNullable(DeviceController.expectedVersion(ifMatch)));
+    }
+
+    private Mono<ResponseEntity<Flux<DeviceDTO>>> stream(String variant, MediaType contentType, Flux<DeviceDTO> body) {
+        // Encoded element by element as rows arrive
+        return listResponse(variant).map(response -> response
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(contentType)
+                .body(body));
+    }
+
+    /**
+     * A 200 response carrying the collection ETag of {@link DeviceController}: the list generation,
+     * read before the query runs. Without one (Redis unreachable) the response has no ETag.
+     */
+    private Mono<ResponseEntity.BodyBuilder> listResponse(String variant) {
+        return deviceCache.listGeneration()
+                .map(generation -> ResponseEntity.ok().eTag("\"list-" + generation + variant + "\""))
+                .defaultIfEmpty(ResponseEntity.ok());
+    }
+}
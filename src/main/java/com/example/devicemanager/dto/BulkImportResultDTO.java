@@ -0,0 +1,24 @@
+package com.example.devicemanager.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportResultDTO {
+
+    private long received;
+
+    private long imported;
+
+    private long failed;
+
+    private List<ImportErrorDTO> errors;
+
+    // Only the first errors are reported; the failed counter is always exact
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,26 @@
+package com.example.devicemanager.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Slim page envelope for keyset pagination. Unlike {@code Page}, it carries no
+ * total count, so producing it never requires a {@code COUNT(*)} query.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageDTO<T> implements Serializable {
+
+    private List<T> content;
+
+    private int size;
+
+    private boolean hasNext;
+
+    private String nextCursor;
+}
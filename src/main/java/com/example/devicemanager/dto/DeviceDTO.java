@@ -22,4 +22,6 @@ public class DeviceDTO implements Serializable {
     private State state;
 
     private Instant creationTime;
+
+    private Long version;
 }
@@ -0,0 +1,28 @@
+package com.example.devicemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Value;
+import org.springframework.http.HttpStatus;
+
+import java.time.Instant;
+
+/**
+ * Body of every error response. Immutable, with the status and reason phrase taken from the
+ * {@link HttpStatus} constant, so building one only allocates the instance and its timestamp.
+ */
+@Value
+@JsonPropertyOrder({"timestamp", "status", "error", "message"})
+public class ErrorResponseDTO {
+
+    Instant timestamp;
+
+    int status;
+
+    String error;
+
+    String message;
+
+    public static ErrorResponseDTO of(HttpStatus status, String message) {
+        return new ErrorResponseDTO(Instant.now(), status.value(), status.getReasonPhrase(), message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.devicemanager.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportErrorDTO {
+
+    private long line;
+
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.example.devicemanager.dto;
+
+import lombok.Value;
+import org.springframework.lang.Nullable;
+
+/**
+ * A {@link DeviceDTO} as written in a GET response: its UTF-8 JSON and, when that is smaller, the
+ * gzip-compressed JSON. The version is the response ETag, suffixed for the gzip body.
+ */
+@Value
+public class SerializedDeviceDTO {
+
+    @Nullable
+    Long version;
+
+    byte[] json;
+
+    @Nullable
+    byte[] gzip;
+}
@@ -0,0 +1,16 @@
+package com.example.devicemanager.dto;
+
+import com.example.devicemanager.model.State;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StateChangeDTO {
+
+    @NotNull(message = "State is mandatory")
+    private State state;
+}
@@ -2,16 +2,21 @@ package com.example.devicemanager.exception;
 
 import org.springframework.http.HttpStatus;
 
+/**
+ * Base of the exceptions answered with their own status and message. They describe an expected
+ * outcome (unknown id, device in use, stale version), not a fault, so no stack trace is captured:
+ * filling it in was most of the cost of a 404 for a deleted id.
+ */
 public abstract class ApiException extends RuntimeException {
 
     private final HttpStatus status;
 
     public ApiException(String message, HttpStatus status) {
-        super(message);
+        super(message, null, false, false);
         this.status = status;
     }
 
     public HttpStatus getStatus() {
         return status;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.example.devicemanager.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class DeviceVersionConflictException extends ApiException {
+    public DeviceVersionConflictException(String message) {
+        super(message, HttpStatus.CONFLICT);
+    }
+}
@@ -1,94 +1,168 @@
 package com.example.devicemanager.exception;
 
+import com.example.devicemanager.dto.ErrorResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.ErrorResponse;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ServerWebInputException;
 
-import java.time.Instant;
-import java.util.HashMap;
+import java.sql.SQLTransientConnectionException;
 import java.util.Map;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps exceptions to {@link ErrorResponseDTO} bodies and counts them in {@code api.errors}, tagged
+ * with the exception type and status.
+ * <p>
+ * Server errors are logged at ERROR with their stack trace. Client errors (4xx) are the caller's
+ * mistake and can arrive in bursts, e.g. clients probing deleted ids, so they are only logged at
+ * DEBUG on the {@value #CLIENT_ERROR_LOGGER} logger, which logback-spring.xml rate-limits.
+ */
 @RestControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
 
-    private void logError(Exception ex) {
-        log.error("[{}] Exception: {} - Message: {}", Instant.now(), ex.getClass().getSimpleName(), ex.getMessage(), ex);
+    static final String CLIENT_ERROR_LOGGER = "com.example.devicemanager.exception.CLIENT_ERRORS";
+
+    private static final Logger clientErrorLog = LoggerFactory.getLogger(CLIENT_ERROR_LOGGER);
+
+    private final MeterRegistry meterRegistry;
+
+    private record CounterKey(Class<?> type, HttpStatus status) {
+    }
+
+    private final Map<CounterKey, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    private void count(Exception ex, HttpStatus status) {
+        errorCounters.computeIfAbsent(new CounterKey(ex.getClass(), status), key -> Counter.builder("api.errors")
+                        .tag("exception", key.type().getSimpleName())
+                        .tag("status", String.valueOf(key.status().value()))
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private void record(Exception ex, HttpStatus status) {
+        count(ex, status);
+        if (status.is5xxServerError()) {
+            log.error("Exception: {} - Message: {}", ex.getClass().getSimpleName(), ex.getMessage(), ex);
+        } else {
+            clientErrorLog.debug("{} {} - Message: {}", status.value(), ex.getClass().getSimpleName(), ex.getMessage());
+        }
+    }
+
+    private ResponseEntity<Object> respond(Exception ex, HttpStatus status, String message) {
+        record(ex, status);
+        return ResponseEntity.status(status).body(ErrorResponseDTO.of(status, message));
     }
 
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<Object> handleApiException(ApiException ex) {
-        logError(ex);
-
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", Instant.now().toString());
-        body.put("status", ex.getStatus().value());
-        body.put("error", ex.getStatus().getReasonPhrase());
-        body.put("message", ex.getMessage());
+        return respond(ex, ex.getStatus(), ex.getMessage());
+    }
 
-        return new ResponseEntity<>(body, ex.getStatus());
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        return respond(ex, HttpStatus.CONFLICT, "Device was modified concurrently");
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Object> handleValidationException(MethodArgumentNotValidException ex) {
-        logError(ex);
-
         String message = ex.getBindingResult().getFieldErrors().stream()
                 .map(fe -> fe.getField() + ": " + fe.getDefaultMessage())
                 .findFirst()
                 .orElse("Invalid request payload");
 
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", Instant.now().toString());
-        body.put("status", HttpStatus.BAD_REQUEST.value());
-        body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-        body.put("message", message);
-
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+        return respond(ex, HttpStatus.BAD_REQUEST, message);
     }
 
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex) {
-        logError(ex);
-
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", Instant.now().toString());
-        body.put("status", HttpStatus.BAD_REQUEST.value());
-        body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-        body.put("message", ex.getMessage());
-
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+        return respond(ex, HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<Object> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
-        logError(ex);
+        return respond(ex, HttpStatus.BAD_REQUEST, "Invalid parameter: " + ex.getName());
+    }
 
-        String message = "Invalid parameter: " + ex.getName();
+    // Reactive stack: @Valid failures on request bodies
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Object> handleValidationException(WebExchangeBindException ex) {
+        String message = ex.getBindingResult().getFieldErrors().stream()
+                .map(fe -> fe.getField() + ": " + fe.getDefaultMessage())
+                .findFirst()
+                .orElse("Invalid request payload");
 
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", Instant.now().toString());
-        body.put("status", HttpStatus.BAD_REQUEST.value());
-        body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-        body.put("message", message);
+        return respond(ex, HttpStatus.BAD_REQUEST, message);
+    }
 
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    // Reactive stack: unconvertible parameters and unreadable bodies
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<Object> handleServerWebInput(ServerWebInputException ex) {
+        String message = ex.getMethodParameter() != null && ex.getMethodParameter().getParameterName() != null
+                ? "Invalid parameter: " + ex.getMethodParameter().getParameterName()
+                : "Invalid request payload";
+
+        return respond(ex, HttpStatus.BAD_REQUEST, message);
     }
 
-    @ExceptionHandler(Exception.class)
-    public ResponseEntity<Object> handleOtherExceptions(Exception ex) {
-        logError(ex);
+    // No database connection within the pool's connection-timeout: the node is saturated, so ask the
+    // client to retry instead of reporting a server error. Other resource failures (a database or
+    // Redis that is down) are server errors.
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Object> handleDatabaseUnavailable(Exception ex) {
+        if (!isPoolExhausted(ex)) {
+            return handleOtherExceptions(ex);
+        }
+        count(ex, HttpStatus.SERVICE_UNAVAILABLE);
+        // Expected under overload: no stack trace, which would only add to the load
+        log.warn("Database unavailable: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ErrorResponseDTO.of(HttpStatus.SERVICE_UNAVAILABLE, "Database busy, retry later"));
+    }
 
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", Instant.now().toString());
-        body.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
-        body.put("error", HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase());
-        body.put("message", "Internal server error");
+    // Hikari's connection-timeout: the pool is up, every connection was in use
+    private static boolean isPoolExhausted(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Object> handleOtherExceptions(Exception ex) {
+        // Spring's own exceptions (ResponseStatusException, unsupported media type, missing parameter...)
+        // carry their status, mostly a 4xx, and headers such as Allow or Accept
+        if (ex instanceof ErrorResponse errorResponse) {
+            HttpStatus status = HttpStatus.resolve(errorResponse.getStatusCode().value());
+            if (status != null) {
+                String detail = errorResponse.getBody().getDetail();
+                record(ex, status);
+                return ResponseEntity.status(status)
+                        .headers(errorResponse.getHeaders())
+                        .body(ErrorResponseDTO.of(status, detail != null ? detail : status.getReasonPhrase()));
+            }
+        }
+        return respond(ex, HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
     }
 }
@@ -2,12 +2,14 @@ package com.example.devicemanager.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.time.Instant;
 
 @Entity
 @Table(name = "devices")
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,7 +18,8 @@ import java.time.Instant;
 public class Device implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -28,4 +31,7 @@ public class Device implements Serializable {
 
     @Column(name = "creation_time", updatable = false, nullable = false)
     private Instant creationTime;
+
+    @Version
+    private Long version;
 }
@@ -1,5 +1,6 @@
 package com.example.devicemanager.model;
 
+// Cached by ordinal (DeviceCacheSerializer): add new states at the end
 public enum State {
     AVAILABLE,
     IN_USE,
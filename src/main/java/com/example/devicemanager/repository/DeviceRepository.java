@@ -1,14 +1,101 @@
 package com.example.devicemanager.repository;
 
+import com.example.devicemanager.dto.DeviceDTO;
 import com.example.devicemanager.model.Device;
 import com.example.devicemanager.model.State;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DeviceRepository extends JpaRepository<Device, Long> {
-    List<Device> findByBrand(String brand);
-    List<Device> findByState(State state);
+
+    // Connector/J only streams rows one at a time (instead of buffering the whole result) with this fetch size
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    // Read path: JPQL constructor expressions build DeviceDTO straight from the result set, so no
+    // entity is hydrated, put in the persistence context or copied by DeviceMapper
+    String SELECT_DTO = "SELECT new com.example.devicemanager.dto.DeviceDTO("
+            + "d.id, d.name, d.brand, d.state, d.creationTime, d.version) FROM Device d ";
+
+    // The loaders of the "devices" cache. Not read-only, so they run on the primary: a replica can be
+    // behind the write that just evicted the entry, and the old row would then be cached for the full
+    // time to live. Transactional here rather than in DeviceService.getDevice, so lookups the id filter
+    // rejects never borrow a connection.
+    @Transactional
+    @Query(SELECT_DTO + "WHERE d.id = :id")
+    Optional<DeviceDTO> findDtoById(@Param("id") Long id);
+
+    @Transactional
+    @Query(SELECT_DTO + "WHERE d.id IN :ids")
+    List<DeviceDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = SELECT_DTO, countQuery = "SELECT COUNT(d) FROM Device d")
+    Page<DeviceDTO> findAllDtos(Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE d.brand = :brand")
+    List<DeviceDTO> findByBrand(@Param("brand") String brand);
+
+    @Query(SELECT_DTO + "WHERE d.state = :state")
+    List<DeviceDTO> findByState(@Param("state") State state);
+
+    // Streaming variants: must be consumed inside a read-only transaction and closed afterwards
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(SELECT_DTO + "WHERE d.brand = :brand")
+    Stream<DeviceDTO> streamByBrand(@Param("brand") String brand);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(SELECT_DTO + "WHERE d.state = :state")
+    Stream<DeviceDTO> streamByState(@Param("state") State state);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT d.id FROM Device d")
+    Stream<Long> streamIds();
+
+    // Keyset pagination: a List return type applies the Pageable limit without issuing a COUNT query
+    @Query(SELECT_DTO + "ORDER BY d.creationTime ASC, d.id ASC")
+    List<DeviceDTO> findFirstPage(Pageable pageable);
+
+    @Query(SELECT_DTO +
+            "WHERE d.creationTime > :creationTime OR (d.creationTime = :creationTime AND d.id > :id) " +
+            "ORDER BY d.creationTime ASC, d.id ASC")
+    List<DeviceDTO> findPageAfter(@Param("creationTime") Instant creationTime, @Param("id") Long id, Pageable pageable);
+
+    // Guarded single-statement writes: the rule is checked by the WHERE clause, so a 0 row count means
+    // the device is missing, in use, at another version or already in the target state.
+    // A null version skips the version check.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Device d WHERE d.id = :id " +
+            "AND d.state <> com.example.devicemanager.model.State.IN_USE " +
+            "AND (:version IS NULL OR d.version = :version)")
+    int deleteIfNotInUse(@Param("id") Long id, @Param("version") Long version);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Device d SET d.state = :state, d.version = d.version + 1 " +
+            "WHERE d.id = :id AND d.state <> :state " +
+            "AND (:version IS NULL OR d.version = :version)")
+    int updateStateIfChanged(@Param("id") Long id, @Param("state") State state, @Param("version") Long version);
 }
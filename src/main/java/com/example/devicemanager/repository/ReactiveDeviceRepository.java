@@ -0,0 +1,229 @@
+package com.example.devicemanager.repository;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.model.State;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * R2DBC counterpart of {@link DeviceRepository} for the reactive stack, on the same table and with the
+ * same statements: DTO projections for reads, keyset pages on (creation_time, id), and the guarded
+ * single-statement writes whose row count carries the outcome.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveDeviceRepository {
+
+    private static final String SELECT_DTO = "SELECT id, name, brand, state, creation_time, version FROM devices ";
+
+    // INCREMENT BY of devices_seq (allocationSize of Device.id)
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+
+    // Ids left in the last block taken from devices_seq: [nextId, lastId]
+    private final Object idLock = new Object();
+    private long nextId = 1;
+    private long lastId = 0;
+
+    public Mono<DeviceDTO> findDtoById(Long id) {
+        return databaseClient.sql(SELECT_DTO + "WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveDeviceRepository::toDTO)
+                .one();
+    }
+
+    public Flux<DeviceDTO> findDtosByIdIn(Collection<Long> ids) {
+        return databaseClient.sql(SELECT_DTO + "WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .map(ReactiveDeviceRepository::toDTO)
+                .all();
+    }
+
+    public Flux<DeviceDTO> findAllDtos(long offset, int limit) {
+        return databaseClient.sql(SELECT_DTO + "LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveDeviceRepository::toDTO)
+                .all();
+    }
+
+    public Mono<Long> count() {
+        return databaseClient.sql("SELECT COUNT(*) FROM devices")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Flux<DeviceDTO> findByBrand(String brand) {
+        return databaseClient.sql(SELECT_DTO + "WHERE brand = :brand")
+                .bind("brand", brand)
+                .map(ReactiveDeviceRepository::toDTO)
+                .all();
+    }
+
+    public Flux<DeviceDTO> findByState(State state) {
+        return databaseClient.sql(SELECT_DTO + "WHERE state = :state")
+                .bind("state", state.name())
+                .map(ReactiveDeviceRepository::toDTO)
+                .all();
+    }
+
+    public Flux<DeviceDTO> findFirstPage(int limit) {
+        return databaseClient.sql(SELECT_DTO + "ORDER BY creation_time ASC, id ASC LIMIT :limit")
+                .bind("limit", limit)
+                .map(ReactiveDeviceRepository::toDTO)
+                .all();
+    }
+
+    public Flux<DeviceDTO> findPageAfter(Instant creationTime, Long id, int limit) {
+        return databaseClient.sql(SELECT_DTO +
+                        "WHERE creation_time > :creationTime OR (creation_time = :creationTime AND id > :id) " +
+                        "ORDER BY creation_time ASC, id ASC LIMIT :limit")
+                .bind("creationTime", toColumn(creationTime))
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactiveDeviceRepository::toDTO)
+                .all();
+    }
+
+    /**
+     * Inserts the devices in one multi-row INSERT, with ids from {@code devices_seq} assigned the way
+     * Hibernate's pooled optimizer does, so both stacks can write to the same table.
+     *
+     * @return the devices as inserted, at version 0
+     */
+    public Mono<List<DeviceDTO>> insertAll(List<Device> devices) {
+        if (devices.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return nextIds(devices.size()).flatMap(ids -> {
+            StringBuilder sql = new StringBuilder("INSERT INTO devices (id, name, brand, state, creation_time, version) VALUES ");
+            for (int i = 0; i < devices.size(); i++) {
+                sql.append(i == 0 ? "" : ", ")
+                        .append("(:id").append(i).append(", :name").append(i).append(", :brand").append(i)
+                        .append(", :state").append(i).append(", :creationTime").append(i).append(", 0)");
+            }
+            DatabaseClient.GenericExecuteSpec insert = databaseClient.sql(sql.toString());
+            List<DeviceDTO> inserted = new ArrayList<>(devices.size());
+            for (int i = 0; i < devices.size(); i++) {
+                Device device = devices.get(i);
+                insert = insert.bind("id" + i, ids.get(i))
+                        .bind("name" + i, device.getName())
+                        .bind("brand" + i, device.getBrand())
+                        .bind("state" + i, device.getState().name())
+                        .bind("creationTime" + i, toColumn(device.getCreationTime()));
+                inserted.add(new DeviceDTO(ids.get(i), device.getName(), device.getBrand(), device.getState(),
+                        device.getCreationTime(), 0L));
+            }
+            return insert.fetch().rowsUpdated().thenReturn(inserted);
+        });
+    }
+
+    /**
+     * Writes name, brand and state if the row is still at {@code device.getVersion()}, bumping the version.
+     *
+     * @return the number of rows updated: 0 when the device was changed or deleted meanwhile
+     */
+    public Mono<Long> updateIfVersion(Device device) {
+        return databaseClient.sql("UPDATE devices SET name = :name, brand = :brand, state = :state, version = version + 1 " +
+                        "WHERE id = :id AND version = :version")
+                .bind("name", device.getName())
+                .bind("brand", device.getBrand())
+                .bind("state", device.getState().name())
+                .bind("id", device.getId())
+                .bind("version", device.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Same guards as DeviceRepository: a null version skips the version check
+    public Mono<Long> deleteIfNotInUse(Long id, Long version) {
+        return bindVersion(databaseClient.sql("DELETE FROM devices WHERE id = :id AND state <> 'IN_USE' " +
+                                "AND (:version IS NULL OR version = :version)")
+                        .bind("id", id), version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> updateStateIfChanged(Long id, State state, Long version) {
+        return bindVersion(databaseClient.sql("UPDATE devices SET state = :state, version = version + 1 " +
+                                "WHERE id = :id AND state <> :state AND (:version IS NULL OR version = :version)")
+                        .bind("id", id)
+                        .bind("state", state.name()), version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<List<Long>> nextIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        synchronized (idLock) {
+            while (ids.size() < count && nextId <= lastId) {
+                ids.add(nextId++);
+            }
+        }
+        int blocks = (count - ids.size() + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        if (blocks == 0) {
+            return Mono.just(ids);
+        }
+        return Flux.range(0, blocks)
+                .concatMap(i -> databaseClient.sql("SELECT NEXT VALUE FOR devices_seq")
+                        .map(row -> row.get(0, Long.class))
+                        .one())
+                .collectList()
+                .map(highs -> {
+                    synchronized (idLock) {
+                        for (long high : highs) {
+                            // Like the pooled optimizer, the sequence value is the top of its block
+                            long id = high - ID_BLOCK_SIZE + 1;
+                            while (ids.size() < count && id <= high) {
+                                ids.add(id++);
+                            }
+                            // Only the unused tail of the last block is kept; with ids still left from a
+                            // concurrent call, it is dropped (a gap, as Hibernate leaves on restart)
+                            if (id <= high && nextId > lastId) {
+                                nextId = id;
+                                lastId = high;
+                            }
+                        }
+                    }
+                    return ids;
+                });
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindVersion(DatabaseClient.GenericExecuteSpec spec, Long version) {
+        return version != null ? spec.bind("version", version) : spec.bindNull("version", Long.class);
+    }
+
+    private static DeviceDTO toDTO(Readable row) {
+        return new DeviceDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("brand", String.class),
+                State.valueOf(row.get("state", String.class)),
+                fromColumn(row.get("creation_time", LocalDateTime.class)),
+                row.get("version", Long.class));
+    }
+
+    // The driver has no Instant codec; like the JDBC side, timestamps are read and written in UTC
+    private static LocalDateTime toColumn(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant fromColumn(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant(ZoneOffset.UTC) : null;
+    }
+}
@@ -1,29 +1,77 @@
 package com.example.devicemanager.service;
 
-import org.springframework.cache.CacheManager;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Component;
+import com.example.devicemanager.config.DeviceCacheProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 
+/**
+ * Incremental sweep of the Redis cache, enabled with {@code device.cache.sweep.enabled}. It replaces
+ * the former midnight clear of every cache, which sent all nodes to the database at the same moment;
+ * entries now expire on their own, jittered time to live.
+ * <p>
+ * Each run scans one batch of cache keys, continuing where the previous run stopped, and unlinks those
+ * that can no longer be read: device list pages of superseded generations and entries without a time
+ * to live. Scan and delete happen in one script, so a run costs a single round trip.
+ */
 @Component
+@ConditionalOnProperty(prefix = "device.cache.sweep", name = "enabled", havingValue = "true")
 @RequiredArgsConstructor
 @Slf4j
 public class CacheEvictSchedulerService {
 
-    private final CacheManager cacheManager;
+    static final String LIST_KEY_PREFIX = "allDevices::";
+
+    // KEYS[1] list generation; ARGV: cursor, match pattern, count, list key prefix
+    private static final RedisScript<List> SWEEP = new DefaultRedisScript<>("""
+            local scan = redis.call('SCAN', ARGV[1], 'MATCH', ARGV[2], 'COUNT', ARGV[3])
+            local generation = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local deleted = 0
+            for _, key in ipairs(scan[2]) do
+              local stale = redis.call('PTTL', key) == -1
+              if not stale and string.sub(key, 1, #ARGV[4]) == ARGV[4] then
+                local keyGeneration = tonumber(string.match(string.sub(key, #ARGV[4] + 1), '^(%d+):'))
+                stale = keyGeneration ~= nil and keyGeneration < generation
+              end
+              if stale then
+                redis.call('UNLINK', key)
+                deleted = deleted + 1
+              end
+            end
+            return {scan[1], deleted}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final DeviceCacheProperties properties;
 
-    // Every day at 00:00
-    @Scheduled(cron = "0 0 0 * * ?")
-    public void evictAllCachesAtMidnight() {
-        log.info("Evicting all caches at {}", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    // Runs never overlap (fixed delay), so no synchronization is needed
+    private String cursor = "0";
 
-        cacheManager.getCacheNames().forEach(cacheName -> {
-            log.info("Clearing cache: {}", cacheName);
-            cacheManager.getCache(cacheName).clear();
-        });
+    @Scheduled(fixedDelayString = "${device.cache.sweep.interval:5m}")
+    public void sweep() {
+        List<?> result;
+        try {
+            result = redisTemplate.execute(SWEEP, List.of(DeviceListGeneration.KEY),
+                    cursor, "*::*", String.valueOf(properties.getSweep().getBatchSize()), LIST_KEY_PREFIX);
+        } catch (RuntimeException e) {
+            log.warn("Cache sweep failed, retrying from the same position next run: {}", e.getMessage());
+            return;
+        }
+        cursor = String.valueOf(result.get(0));
+        long deleted = ((Number) result.get(1)).longValue();
+        if (deleted > 0) {
+            log.info("Cache sweep removed {} stale entries", deleted);
+        }
+        if ("0".equals(cursor)) {
+            log.debug("Cache sweep finished a pass over the keyspace");
+        }
     }
 }
@@ -0,0 +1,85 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.DeviceCacheProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts device reads on this node and periodically adds them to a Redis sorted set shared by all
+ * nodes: the access-frequency snapshot that {@link DeviceCacheWarmer} preloads from. Counts already
+ * in the snapshot are decayed at every flush and only the ids a warm-up could use are kept.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceAccessTracker {
+
+    static final String KEY = "devices:access-frequency";
+
+    // Bounds the ids counted between two flushes; reads of further ids go uncounted
+    private static final int MAX_TRACKED_IDS = 100_000;
+
+    private static final byte[] RAW_KEY = KEY.getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final DeviceCacheProperties properties;
+
+    private final AtomicReference<ConcurrentMap<Long, LongAdder>> counts = new AtomicReference<>(new ConcurrentHashMap<>());
+
+    public void recordAccess(Long id) {
+        ConcurrentMap<Long, LongAdder> current = counts.get();
+        LongAdder count = current.get(id);
+        if (count == null) {
+            if (current.size() >= MAX_TRACKED_IDS) {
+                return;
+            }
+            count = current.computeIfAbsent(id, key -> new LongAdder());
+        }
+        // A read racing with a flush may land in the map just swapped out and go uncounted
+        count.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${device.cache.warm-up.snapshot-interval:1m}")
+    public void flush() {
+        ConcurrentMap<Long, LongAdder> flushed = counts.getAndSet(new ConcurrentHashMap<>());
+        if (flushed.isEmpty()) {
+            return;
+        }
+        DeviceCacheProperties.WarmUp warmUp = properties.getWarmUp();
+        long kept = Math.max(1, warmUp.getDevices() * 2L);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zSetCommands().zUnionStore(RAW_KEY, Aggregate.SUM, Weights.of(warmUp.getSnapshotDecay()), RAW_KEY);
+                flushed.forEach((id, count) -> connection.zSetCommands()
+                        .zIncrBy(RAW_KEY, count.sum(), id.toString().getBytes(StandardCharsets.UTF_8)));
+                connection.zSetCommands().zRemRange(RAW_KEY, 0, -kept - 1);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not add the read counts of {} devices to the access snapshot: {}", flushed.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return up to {@code limit} device ids, most read first
+     */
+    public List<Long> hottest(int limit) {
+        Set<String> ids = redisTemplate.opsForZSet().reverseRange(KEY, 0, limit - 1L);
+        return ids == null ? List.of() : ids.stream().map(Long::valueOf).toList();
+    }
+}
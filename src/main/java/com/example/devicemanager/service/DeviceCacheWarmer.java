@@ -0,0 +1,135 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.DeviceCacheProperties;
+import com.example.devicemanager.config.ThreadFactories;
+import com.example.devicemanager.config.TwoLevelCacheManager;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.repository.DeviceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Preloads the cache when the node starts, so its first requests are not all served by the database:
+ * the most read devices of the access-frequency snapshot ({@link DeviceAccessTracker}), in parallel
+ * batches of one Redis MGET and one query each, and the first pages of the device list.
+ * <p>
+ * As a health indicator it reports OUT_OF_SERVICE until the warm-up completes or times out; included
+ * in the readiness group, it keeps traffic away from the node meanwhile.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceCacheWarmer implements HealthIndicator {
+
+    private final DeviceService deviceService;
+
+    private final DeviceRepository deviceRepository;
+
+    private final DeviceAccessTracker deviceAccessTracker;
+
+    private final DeviceListGeneration deviceListGeneration;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    private final DeviceCacheProperties properties;
+
+    private final Environment environment;
+
+    private volatile boolean done;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        start();
+    }
+
+    CompletableFuture<Void> start() {
+        DeviceCacheProperties.WarmUp warmUp = properties.getWarmUp();
+        if (!warmUp.isEnabled()) {
+            done = true;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmUp.getParallelism()),
+                ThreadFactories.of(environment, "cache-warm-up-"));
+        AtomicInteger fromDatabase = new AtomicInteger();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        List<Long> hottest = hottest(warmUp.getDevices());
+        // One cache read before fanning out, so the parallel tasks do not all pay for the cold start
+        // together and look like a slow Redis to the cache circuit breaker
+        deviceListGeneration.current();
+        int batchSize = Math.max(1, warmUp.getBatchSize());
+        for (int from = 0; from < hottest.size(); from += batchSize) {
+            List<Long> batch = hottest.subList(from, Math.min(from + batchSize, hottest.size()));
+            tasks.add(CompletableFuture.runAsync(() -> fromDatabase.addAndGet(warmDevices(batch)), executor));
+        }
+        for (int page = 0; page < warmUp.getListPages(); page++) {
+            PageRequest pageRequest = PageRequest.of(page, warmUp.getListPageSize());
+            tasks.add(CompletableFuture.runAsync(() -> deviceService.listDevices(pageRequest), executor));
+        }
+
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .orTimeout(warmUp.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .handle((result, failure) -> {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    if (failure == null) {
+                        log.info("Cache warm-up preloaded {} devices ({} from the database) and {} list pages in {} ms",
+                                hottest.size(), fromDatabase.get(), warmUp.getListPages(), millis);
+                    } else {
+                        log.warn("Cache warm-up stopped after {} ms, serving with a partly warm cache: {}", millis, failure.toString());
+                    }
+                    executor.shutdownNow();
+                    done = true;
+                    return null;
+                });
+    }
+
+    @Override
+    public Health health() {
+        return done
+                ? Health.up().build()
+                : Health.outOfService().withDetail("reason", "cache warm-up in progress").build();
+    }
+
+    private List<Long> hottest(int limit) {
+        try {
+            return deviceAccessTracker.hottest(limit);
+        } catch (RuntimeException e) {
+            log.warn("Could not read the access snapshot, warming up list pages only: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * @return the number of devices that had to be read from the database
+     */
+    private int warmDevices(List<Long> ids) {
+        AtomicInteger loaded = new AtomicInteger();
+        // Devices other nodes keep in Redis are only copied into this node's in-process tier. The rest
+        // are stored as loads, which publish no invalidation to other nodes
+        cacheManager.getCache("devices").getAll(ids, missing -> {
+            List<DeviceDTO> devices = deviceRepository.findDtosByIdIn(missing);
+            loaded.addAndGet(devices.size());
+            return devices.stream().collect(Collectors.toMap(DeviceDTO::getId, Function.identity()));
+        });
+        return loaded.get();
+    }
+}
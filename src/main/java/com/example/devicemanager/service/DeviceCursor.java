@@ -0,0 +1,44 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.exception.BusinessException;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of a device in the (creation_time, id) ordering used by keyset
+ * pagination, encoded as an opaque URL-safe token.
+ */
+public record DeviceCursor(Instant creationTime, Long id) {
+
+    private static final int ENCODED_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    public static DeviceCursor of(DeviceDTO device) {
+        return new DeviceCursor(device.getCreationTime(), device.getId());
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH)
+                .putLong(creationTime.getEpochSecond())
+                .putInt(creationTime.getNano())
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static DeviceCursor decode(String token) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != ENCODED_LENGTH) {
+                throw new BusinessException("Invalid cursor");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            Instant creationTime = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            return new DeviceCursor(creationTime, buffer.getLong());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+}
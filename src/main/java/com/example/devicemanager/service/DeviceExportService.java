@@ -0,0 +1,76 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.DeviceRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class DeviceExportService {
+
+    public enum Format {
+        JSON_ARRAY,
+        NDJSON
+    }
+
+    private final DeviceRepository deviceRepository;
+
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void writeDevicesByBrand(String brand, Format format, OutputStream out) throws IOException {
+        try (Stream<DeviceDTO> devices = deviceRepository.streamByBrand(brand)) {
+            write(devices, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeDevicesByState(State state, Format format, OutputStream out) throws IOException {
+        try (Stream<DeviceDTO> devices = deviceRepository.streamByState(state)) {
+            write(devices, format, out);
+        }
+    }
+
+    private void write(Stream<DeviceDTO> devices, Format format, OutputStream out) throws IOException {
+        // One row is in memory at a time: rows are projected to DTOs, never managed, and written as they arrive
+        ObjectWriter writer = objectMapper.writerFor(DeviceDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            if (format == Format.JSON_ARRAY) {
+                generator.writeStartArray();
+            }
+
+            devices.forEach(device -> {
+                try {
+                    writer.writeValue(generator, device);
+                    if (format == Format.NDJSON) {
+                        generator.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            if (format == Format.JSON_ARRAY) {
+                generator.writeEndArray();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.CacheCircuitBreaker;
+import com.example.devicemanager.repository.DeviceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this id known not to exist?" without touching the database, from two sources that are
+ * checked in one pipelined Redis round trip:
+ * <ul>
+ *   <li>a Bloom filter of existing ids, kept as a Redis bitmap so that ids created on any node are
+ *   seen by all of them. It is trusted only once fully built (bit 0 set), and since bits are never
+ *   cleared, deleted ids stay "maybe present";</li>
+ *   <li>a short-lived negative entry for ids that were looked up and not found, or deleted.</li>
+ * </ul>
+ * Any Redis failure lets the id through to the database, and lookups go through the
+ * {@link CacheCircuitBreaker} so that a slow Redis is skipped altogether. Created ids whose bits
+ * could not be set are kept and added again as soon as Redis answers: by the next lookup, when the
+ * breaker closes, or by the next build check.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceIdFilter {
+
+    static final String MISSING_KEY_PREFIX = "devices:missing:";
+
+    private static final long READY_BIT = 0;
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+
+    // Past this many unrecorded ids, the filter is reset and rebuilt instead
+    static final int MAX_UNRECORDED = 10_000;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final DeviceRepository deviceRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry;
+
+    private final CacheCircuitBreaker cacheCircuitBreaker;
+
+    @Value("${device.id-filter.expected-devices:1000000}")
+    private long expectedDevices;
+
+    @Value("${device.id-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${device.id-filter.missing-ttl:30s}")
+    private Duration missingTtl;
+
+    private long bits;
+
+    private int hashes;
+
+    // Sized into the key: a node with other settings builds its own filter instead of misreading this one
+    private byte[] bloomKey;
+
+    private Counter rejectedByFilter;
+
+    private Counter rejectedAsMissing;
+
+    // Created ids whose bits are not in Redis yet; the filter must not reject them anywhere
+    private final Set<Long> unrecorded = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean resetPending;
+
+    @PostConstruct
+    void init() {
+        double ln2 = Math.log(2);
+        bits = (long) Math.ceil(-expectedDevices * Math.log(falsePositiveRate) / (ln2 * ln2));
+        hashes = Math.max(1, (int) Math.round((double) bits / expectedDevices * ln2));
+        bloomKey = ("devices:id-bloom:" + bits + ":" + hashes).getBytes(StandardCharsets.UTF_8);
+
+        rejectedByFilter = rejected("bloom");
+        rejectedAsMissing = rejected("negative-cache");
+        cacheCircuitBreaker.onClose(this::recordPending);
+    }
+
+    /**
+     * @return {@code true} if the device certainly does not exist (or was recently found missing)
+     */
+    public boolean isKnownMissing(Long id) {
+        if (resetPending || !unrecorded.isEmpty()) {
+            if (cacheCircuitBreaker.isClosed()) {
+                recordPending();
+            }
+            if (resetPending || unrecorded.contains(id)) {
+                return false;
+            }
+        }
+        long[] offsets = offsets(id);
+        byte[] missingKey = missingKey(id);
+        List<Object> results = cacheCircuitBreaker.execute("devices", "id-filter",
+                () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    connection.stringCommands().getBit(bloomKey, READY_BIT);
+                    for (long offset : offsets) {
+                        connection.stringCommands().getBit(bloomKey, offset);
+                    }
+                    connection.keyCommands().exists(missingKey);
+                    return null;
+                }),
+                () -> null);
+        if (results == null) {
+            // Unavailable: look the id up in the database
+            return false;
+        }
+
+        if (Boolean.TRUE.equals(results.get(results.size() - 1))) {
+            rejectedAsMissing.increment();
+            return true;
+        }
+        if (!Boolean.TRUE.equals(results.get(0))) {
+            return false;
+        }
+        for (int i = 1; i <= offsets.length; i++) {
+            if (!Boolean.TRUE.equals(results.get(i))) {
+                rejectedByFilter.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void recordMissing(Long id) {
+        try {
+            redisTemplate.opsForValue().set(MISSING_KEY_PREFIX + id, "1", missingTtl);
+        } catch (RuntimeException e) {
+            log.debug("Could not remember missing device {}: {}", id, e.getMessage());
+        }
+    }
+
+    public void clearMissing(Long id) {
+        try {
+            redisTemplate.delete(MISSING_KEY_PREFIX + id);
+        } catch (RuntimeException e) {
+            log.warn("Could not clear negative entry of device {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the ids to the filter right away, so they are never rejected, and drops their negative
+     * entries once the transaction has committed, when they can no longer be re-added by a reader
+     * that does not see the rows yet.
+     */
+    public void recordCreated(Collection<Long> ids) {
+        List<Long> created = ids.stream().filter(Objects::nonNull).toList();
+        if (created.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                created.forEach(id -> setBits(connection, id));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Other nodes read the filter again as soon as Redis is back, so the ids must be added before
+            // then; past MAX_UNRECORDED ids the filter is rebuilt, as it is only trusted after a full build
+            log.warn("Could not add {} device ids to the id filter, adding them once Redis answers: {}",
+                    created.size(), e.getMessage());
+            if (unrecorded.size() + created.size() > MAX_UNRECORDED) {
+                resetPending = true;
+            } else {
+                unrecorded.addAll(created);
+            }
+        }
+        AfterCommit.run(() -> {
+            try {
+                redisTemplate.delete(created.stream().map(id -> MISSING_KEY_PREFIX + id).toList());
+            } catch (RuntimeException e) {
+                log.warn("Could not clear negative entries of created devices: {}", e.getMessage());
+            }
+        });
+    }
+
+    public void recordDeleted(Long id) {
+        AfterCommit.run(() -> recordMissing(id));
+    }
+
+    /**
+     * Builds the filter from the database when it is missing: at startup, after Redis lost it, or
+     * when the sizing changed. Ids created meanwhile are added by {@link #recordCreated}, so
+     * concurrent builds on several nodes only ever add bits.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${device.id-filter.check-interval:10m}")
+    public void buildIfMissing() {
+        recordPending();
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().getBit(bloomKey, READY_BIT)))) {
+                return;
+            }
+            // Not read-only: that would route the scan to a replica, which may lack recently created ids
+            Long count = new TransactionTemplate(transactionManager).execute(status -> {
+                long added = 0;
+                List<Long> batch = new ArrayList<>(BUILD_BATCH_SIZE);
+                try (Stream<Long> ids = deviceRepository.streamIds()) {
+                    for (Long id : (Iterable<Long>) ids::iterator) {
+                        batch.add(id);
+                        if (batch.size() == BUILD_BATCH_SIZE) {
+                            added += addBatch(batch);
+                        }
+                    }
+                }
+                return added + addBatch(batch);
+            });
+            redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().setBit(bloomKey, READY_BIT, true));
+            log.info("Built device id filter from {} ids ({} bits, {} hashes)", count, bits, hashes);
+        } catch (RuntimeException e) {
+            log.warn("Could not build the device id filter, ids are looked up in the database: {}", e.getMessage());
+        }
+    }
+
+    private long addBatch(List<Long> batch) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            batch.forEach(id -> setBits(connection, id));
+            return null;
+        });
+        int added = batch.size();
+        batch.clear();
+        return added;
+    }
+
+    private void setBits(RedisConnection connection, Long id) {
+        for (long offset : offsets(id)) {
+            connection.stringCommands().setBit(bloomKey, offset, true);
+        }
+    }
+
+    /**
+     * Adds the ids whose bits could not be set, or resets the filter if there were too many of them.
+     */
+    void recordPending() {
+        try {
+            if (resetPending) {
+                redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                        connection.stringCommands().setBit(bloomKey, READY_BIT, false));
+                resetPending = false;
+                unrecorded.clear();
+                log.info("Reset the device id filter after ids could not be added to it");
+                return;
+            }
+            if (unrecorded.isEmpty()) {
+                return;
+            }
+            List<Long> ids = List.copyOf(unrecorded);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                ids.forEach(id -> setBits(connection, id));
+                return null;
+            });
+            ids.forEach(unrecorded::remove);
+            log.info("Added {} device ids to the id filter after Redis was unavailable", ids.size());
+        } catch (RuntimeException e) {
+            log.debug("Could not add pending ids to the device id filter: {}", e.getMessage());
+        }
+    }
+
+    // Double hashing over a 64-bit mix of the id; offset 0 is the "ready" bit
+    private long[] offsets(long id) {
+        long h1 = mix(id);
+        long h2 = mix(h1) | 1;
+        long[] offsets = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            offsets[i] = 1 + Math.floorMod(h1 + i * h2, bits);
+        }
+        return offsets;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static byte[] missingKey(Long id) {
+        return (MISSING_KEY_PREFIX + id).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Counter rejected(String source) {
+        return Counter.builder("device.lookups.rejected")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
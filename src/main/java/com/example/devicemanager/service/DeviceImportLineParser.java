@@ -0,0 +1,67 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses and validates one line of an NDJSON device import, so the servlet and reactive imports
+ * report invalid lines with the same messages.
+ */
+@Component
+public class DeviceImportLineParser {
+
+    private final ObjectReader lineReader;
+
+    private final Validator validator;
+
+    public DeviceImportLineParser(ObjectMapper objectMapper, Validator validator) {
+        this.lineReader = objectMapper.readerFor(CreateDeviceDTO.class)
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.validator = validator;
+    }
+
+    /**
+     * @return the device, or the reason the line was rejected
+     */
+    public Line parse(String line) {
+        CreateDeviceDTO dto;
+        try (JsonParser parser = lineReader.createParser(line)) {
+            dto = lineReader.readValue(parser);
+        } catch (JsonProcessingException e) {
+            return Line.rejected("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            return Line.rejected("Unreadable line: " + e.getMessage());
+        }
+
+        if (dto == null) {
+            return Line.rejected("Expected a device object");
+        }
+
+        Set<ConstraintViolation<CreateDeviceDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return Line.rejected(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return new Line(dto, null);
+    }
+
+    public record Line(CreateDeviceDTO device, String error) {
+
+        static Line rejected(String error) {
+            return new Line(null, error);
+        }
+    }
+}
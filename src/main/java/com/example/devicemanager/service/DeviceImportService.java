@@ -0,0 +1,271 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.BulkImportResultDTO;
+import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.ImportErrorDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.repository.DeviceRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceImportService {
+
+    private final DeviceRepository deviceRepository;
+
+    private final DeviceMapper deviceMapper;
+
+    private final DeviceImportLineParser lineParser;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final DeviceListGeneration deviceListGeneration;
+
+    private final DeviceIdFilter deviceIdFilter;
+
+    @Value("${device.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${device.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    @Value("${device.import.max-line-length:10000}")
+    private int maxLineLength;
+
+    /**
+     * Imports newline-delimited JSON, one {@link CreateDeviceDTO} per line. Lines are parsed as they
+     * arrive and committed in chunks of {@code device.import.chunk-size}; an invalid line or a failed
+     * chunk is reported and skipped without aborting the rest of the import. A chunk rejected for its
+     * data is retried row by row, so that only the offending lines fail, and lines longer than
+     * {@code device.import.max-line-length} are rejected without being read into memory.
+     */
+    public BulkImportResultDTO importDevices(InputStream ndjson) throws IOException {
+        ImportProgress progress = new ImportProgress();
+        List<Device> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        try (Reader input = new InputStreamReader(ndjson, StandardCharsets.UTF_8)) {
+            LineReader reader = new LineReader(input, maxLineLength);
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                progress.received++;
+                if (reader.isTruncated()) {
+                    progress.fail(lineNumber, "Line longer than " + maxLineLength + " characters");
+                    continue;
+                }
+
+                Device device = parseLine(line, lineNumber, progress);
+                if (device == null) {
+                    continue;
+                }
+                chunk.add(device);
+                chunkLines.add(lineNumber);
+
+                if (chunk.size() >= chunkSize) {
+                    commitChunk(chunk, chunkLines, progress);
+                }
+            }
+            commitChunk(chunk, chunkLines, progress);
+        } finally {
+            // Chunks commit on their own, so the list changes even when the import stops part way
+            if (progress.imported > 0) {
+                deviceListGeneration.bumpAfterCommit();
+            }
+        }
+
+        log.info("Device import finished: received={}, imported={}, failed={}",
+                progress.received, progress.imported, progress.failed);
+
+        return BulkImportResultDTO.builder()
+                .received(progress.received)
+                .imported(progress.imported)
+                .failed(progress.failed)
+                .errors(progress.errors)
+                .errorsTruncated(progress.failed > progress.errors.size())
+                .build();
+    }
+
+    private Device parseLine(String line, long lineNumber, ImportProgress progress) {
+        DeviceImportLineParser.Line parsed = lineParser.parse(line);
+        if (parsed.error() != null) {
+            progress.fail(lineNumber, parsed.error());
+            return null;
+        }
+        Device device = deviceMapper.toEntity(parsed.device());
+        device.setCreationTime(Instant.now());
+        return device;
+    }
+
+    private void commitChunk(List<Device> chunk, List<Long> chunkLines, ImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            insert(chunk, progress);
+        } catch (RuntimeException e) {
+            if (!isRowError(e)) {
+                log.warn("Device import chunk of {} rows failed: {}", chunk.size(), e.getMessage());
+                chunkLines.forEach(lineNumber -> progress.fail(lineNumber, "Chunk rejected by database: " + e.getMessage()));
+            } else if (chunk.size() == 1) {
+                progress.fail(chunkLines.get(0), "Rejected by database: " + e.getMessage());
+            } else {
+                log.warn("Device import chunk of {} rows failed, retrying it row by row: {}",
+                        chunk.size(), e.getMessage());
+                insertEach(chunk, chunkLines, progress);
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * @return whether the database rejected the statement for what it contained (a constraint, a value
+     * too long for its column), so that inserting the rows one by one finds the offending ones; a
+     * connection failure or timeout would only fail each of them, more slowly
+     */
+    static boolean isRowError(Throwable e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void insertEach(List<Device> chunk, List<Long> chunkLines, ImportProgress progress) {
+        // The rolled back chunk is still in the persistence context, with its generated ids
+        entityManager.clear();
+        for (int i = 0; i < chunk.size(); i++) {
+            Device device = chunk.get(i);
+            device.setId(null);
+            device.setVersion(null);
+            try {
+                insert(List.of(device), progress);
+            } catch (RuntimeException e) {
+                entityManager.clear();
+                progress.fail(chunkLines.get(i), "Rejected by database: " + e.getMessage());
+            }
+        }
+    }
+
+    private void insert(List<Device> devices, ImportProgress progress) {
+        transactionTemplate.executeWithoutResult(status -> {
+            deviceRepository.saveAll(devices);
+            deviceRepository.flush();
+            // Keep the persistence context (shared with the request when open-in-view is on) from growing
+            entityManager.clear();
+        });
+        progress.imported += devices.size();
+        deviceIdFilter.recordCreated(devices.stream().map(Device::getId).toList());
+    }
+
+    /**
+     * Splits the input at '\n' (dropping a preceding '\r') like {@link java.io.BufferedReader#readLine},
+     * but keeps at most {@code maxLength} characters of a line, so that one endless line cannot fill the heap.
+     */
+    private static final class LineReader {
+
+        private final Reader in;
+
+        private final int maxLength;
+
+        private final char[] buffer = new char[8192];
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        private int limit;
+
+        private long length;
+
+        private LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * @return the next line, cut to {@code maxLength} characters if {@link #isTruncated()}, or
+         * {@code null} at the end of the input
+         */
+        private String readLine() throws IOException {
+            line.setLength(0);
+            length = 0;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(in.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return read ? finish() : null;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    return finish();
+                }
+            }
+        }
+
+        private boolean isTruncated() {
+            return length > maxLength;
+        }
+
+        private void append(int from, int to) {
+            length += to - from;
+            // One more than the limit, for the '\r' of a line that is exactly maxLength long
+            int kept = Math.min(to - from, Math.max(maxLength + 1 - line.length(), 0));
+            line.append(buffer, from, kept);
+        }
+
+        private String finish() {
+            if (length == line.length() && !line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+                length--;
+            }
+            if (line.length() > maxLength) {
+                line.setLength(maxLength);
+            }
+            return line.toString();
+        }
+    }
+
+    private class ImportProgress {
+        private long received;
+        private long imported;
+        private long failed;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportErrorDTO(line, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.CacheCircuitBreaker;
+import com.example.devicemanager.config.ReplicaLagMonitor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generation number of the device list, shared by all nodes through Redis and bumped by every write.
+ * Pages are cached under a key that includes the current generation, so a write invalidates every
+ * page with a single INCR instead of scanning and deleting keys; pages of older generations are never
+ * read again and expire through the cache TTL. It is also the validator of the collection ETags.
+ * <p>
+ * With read replicas, lists may be read from a replica that has not applied the write yet and be
+ * cached, or validated, under the bumped generation. Writes therefore bump it a second time once
+ * every replica reads are routed to has caught up ({@link ReplicaLagMonitor#getStalenessBound()}).
+ * Writes within that delay share one delayed bump.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceListGeneration {
+
+    static final String KEY = "devices:list-generation";
+
+    public static final long UNKNOWN = -1;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final CacheCircuitBreaker cacheCircuitBreaker;
+
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+
+    private final TaskScheduler taskScheduler;
+
+    private final AtomicBoolean pendingBump = new AtomicBoolean();
+
+    private final AtomicBoolean replicaBumpScheduled = new AtomicBoolean();
+
+    private volatile long lastWriteNanos;
+
+    @PostConstruct
+    void init() {
+        cacheCircuitBreaker.onClose(this::retryBump);
+    }
+
+    /**
+     * @return the current generation, or {@link #UNKNOWN} while Redis is bypassed; pages keyed by it
+     * are older than any real generation, so the cache sweep removes them
+     */
+    public long current() {
+        retryBump();
+        String generation = cacheCircuitBreaker.execute("allDevices", "generation",
+                this::readOrSeed, () -> String.valueOf(UNKNOWN));
+        return Long.parseLong(generation);
+    }
+
+    /**
+     * Bumps the generation once the current transaction has committed (right away outside of one).
+     * Bumping earlier would let a concurrent reader cache the pre-commit rows under the new generation.
+     */
+    public void bumpAfterCommit() {
+        AfterCommit.run(() -> {
+            bump();
+            bumpAfterReplicaLag();
+        });
+    }
+
+    private void bumpAfterReplicaLag() {
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+        if (monitor == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        lastWriteNanos = now;
+        if (replicaBumpScheduled.compareAndSet(false, true)) {
+            scheduleReplicaBump(now, monitor.getStalenessBound());
+        }
+    }
+
+    private void scheduleReplicaBump(long coveredWriteNanos, Duration delay) {
+        taskScheduler.schedule(() -> {
+            replicaBumpScheduled.set(false);
+            bump();
+            // Writes after the one this bump waited for are not covered yet
+            long lastWrite = lastWriteNanos;
+            if (lastWrite - coveredWriteNanos > 0 && replicaBumpScheduled.compareAndSet(false, true)) {
+                Duration bound = replicaLagMonitor.getObject().getStalenessBound();
+                scheduleReplicaBump(lastWrite, bound.minusNanos(System.nanoTime() - lastWrite));
+            }
+        }, Instant.now().plus(delay));
+    }
+
+    private String readOrSeed() {
+        String generation = redisTemplate.opsForValue().get(KEY);
+        if (generation != null) {
+            return generation;
+        }
+        // A lost key restarts from the clock rather than from 0, so a generation, and the ETags built
+        // on it, is never handed out again for other data
+        String seed = String.valueOf(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+        redisTemplate.opsForValue().setIfAbsent(KEY, seed);
+        generation = redisTemplate.opsForValue().get(KEY);
+        return generation != null ? generation : seed;
+    }
+
+    private void bump() {
+        // A bump that cannot reach Redis is retried by the next read of the generation, or when the
+        // cache breaker closes; until then cached pages and collection ETags may be stale
+        pendingBump.set(false);
+        cacheCircuitBreaker.run("allDevices", "generation-bump",
+                () -> {
+                    readOrSeed();
+                    redisTemplate.opsForValue().increment(KEY);
+                },
+                () -> {
+                    pendingBump.set(true);
+                    log.warn("Could not bump the device list generation, retrying on its next read");
+                });
+    }
+
+    private void retryBump() {
+        if (pendingBump.getAndSet(false)) {
+            bump();
+        }
+    }
+}
@@ -15,6 +15,7 @@ public class DeviceMapper {
                 .brand(device.getBrand())
                 .state(device.getState())
                 .creationTime(device.getCreationTime() != null ? device.getCreationTime() : null)
+                .version(device.getVersion())
                 .build();
     }
 
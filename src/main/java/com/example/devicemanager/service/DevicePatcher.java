@@ -0,0 +1,44 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.Device;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies a partial update to a managed {@link Device} with JSON Merge Patch (RFC 7396) semantics:
+ * a field that is absent or {@code null} in the patch is left untouched. None of the patchable
+ * columns may be cleared, so {@code null} never means "remove" here.
+ * <p>
+ * Only fields whose value actually changes are written, so Hibernate's dirty checking (together
+ * with {@code @DynamicUpdate}) emits an UPDATE of just those columns, or no statement at all.
+ * {@code id} and {@code creationTime} are never patched.
+ */
+@Component
+public class DevicePatcher {
+
+    /**
+     * @return {@code true} if at least one field of {@code target} was changed
+     */
+    public boolean apply(DeviceDTO patch, Device target) {
+        boolean changed = false;
+
+        if (patch.getName() != null && !patch.getName().equals(target.getName())) {
+            target.setName(patch.getName());
+            changed = true;
+        }
+        if (patch.getBrand() != null && !patch.getBrand().equals(target.getBrand())) {
+            target.setBrand(patch.getBrand());
+            changed = true;
+        }
+        if (patch.getState() != null && patch.getState() != target.getState()) {
+            target.setState(patch.getState());
+            changed = true;
+        }
+        return changed;
+    }
+
+    public boolean changesNameOrBrand(DeviceDTO patch, Device target) {
+        return patch.getName() != null && !patch.getName().equals(target.getName())
+                || patch.getBrand() != null && !patch.getBrand().equals(target.getBrand());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.DeviceCacheProperties;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.SerializedDeviceDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The "deviceJson" cache: single-device GET responses as the bytes written to the client. A hit in
+ * either tier skips both reading a {@link DeviceDTO} from the cache and serializing it again.
+ * <p>
+ * Entries are built from {@link DeviceService#getDevice} and evicted by every {@link DeviceService}
+ * write that puts or evicts the device in "devices", whether or not this node serves from the cache:
+ * the Redis tier is shared with nodes that may, and outlives a restart with the setting turned off.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeviceResponseCache {
+
+    static final String CACHE_NAME = "deviceJson";
+
+    private final DeviceService deviceService;
+
+    private final ObjectMapper objectMapper;
+
+    private final DeviceCacheProperties properties;
+
+    public boolean isEnabled() {
+        return properties.isSerializedResponses();
+    }
+
+    @Cacheable(value = CACHE_NAME, key = "#id", sync = true)
+    public SerializedDeviceDTO getDevice(Long id) {
+        DeviceDTO device = deviceService.getDevice(id);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(device);
+            byte[] gzip = gzip(json);
+            // A short device compresses to more than its JSON; then only the JSON is kept
+            return new SerializedDeviceDTO(device.getVersion(), json, gzip.length < json.length ? gzip : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        }
+        return bytes.toByteArray();
+    }
+}
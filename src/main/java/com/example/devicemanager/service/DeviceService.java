@@ -1,15 +1,17 @@
 package com.example.devicemanager.service;
 
+import com.example.devicemanager.config.TwoLevelCacheManager;
 import com.example.devicemanager.model.Device;
 import com.example.devicemanager.model.State;
 import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
 import com.example.devicemanager.dto.DeviceDTO;
 import com.example.devicemanager.exception.BusinessException;
 import com.example.devicemanager.exception.DeviceInUseException;
 import com.example.devicemanager.exception.DeviceNotFoundException;
+import com.example.devicemanager.exception.DeviceVersionConflictException;
+import com.example.devicemanager.exception.PreconditionFailedException;
 import com.example.devicemanager.repository.DeviceRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,11 +23,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,108 +42,207 @@ public class DeviceService {
 
     private final DeviceMapper deviceMapper;
 
+    private final DevicePatcher devicePatcher;
+
+    private final DeviceListGeneration deviceListGeneration;
+
+    private final DeviceIdFilter deviceIdFilter;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    private static final int MAX_PAGE_SIZE = 20;
+
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // Refresh-ahead reloads "devices" entries with the cache loader itself, on the primary
     @PostConstruct
-    public void initCache() {
+    void registerRefreshLoader() {
+        cacheManager.getCache("devices").setRefreshLoader(id -> deviceRepository.findDtoById((Long) id).orElse(null));
     }
-    private static final int MAX_PAGE_SIZE = 20;
 
     @CachePut(value = "devices", key = "#result.id")
-    @CacheEvict(value = "allDevices", allEntries = true)
     public DeviceDTO createDevice(CreateDeviceDTO deviceDTO) {
         Device device = deviceMapper.toEntity(deviceDTO);
         device.setCreationTime(Instant.now());
         Device saved = deviceRepository.save(device);
+        deviceIdFilter.recordCreated(List.of(saved.getId()));
+        deviceListGeneration.bumpAfterCommit();
         return deviceMapper.toDTO(saved);
     }
 
-    @CachePut(value = "devices", key = "#id")
-    @CacheEvict(value = "allDevices", allEntries = true)
-    public DeviceDTO updateDevice(Long id, DeviceDTO deviceDTO) {
+    @Transactional
+    @Caching(put = @CachePut(value = "devices", key = "#id"),
+            evict = @CacheEvict(value = DeviceResponseCache.CACHE_NAME, key = "#id"))
+    public DeviceDTO updateDevice(Long id, DeviceDTO deviceDTO, Long expectedVersion) {
         Device existing = deviceRepository.findById(id)
                 .orElseThrow(() -> new BusinessException("Device with id " + id + " not found"));
+        checkVersion(existing, expectedVersion);
 
-        if (existing.getState() == State.IN_USE) {
-            if (deviceDTO.getName() != null && !deviceDTO.getName().equals(existing.getName())
-                    || deviceDTO.getBrand() != null && !deviceDTO.getBrand().equals(existing.getBrand())) {
-                throw new BusinessException("Cannot update name or brand while device is in use");
-            }
+        if (existing.getState() == State.IN_USE && devicePatcher.changesNameOrBrand(deviceDTO, existing)) {
+            throw new BusinessException("Cannot update name or brand while device is in use");
         }
 
-        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
-
-        HashMap<String, Object> existingMap = objectMapper.convertValue(existing, HashMap.class);
-        Map dtoMap = objectMapper.convertValue(deviceDTO, Map.class);
-
-        for (Map.Entry<String, Object> entry : existingMap.entrySet()) {
-            Object newValue = dtoMap.get(entry.getKey());
-            if (newValue != null) {
-                entry.setValue(newValue);
-            }
+        // The entity is managed: dirty checking writes only the patched columns, as
+        // "UPDATE ... WHERE id = ? AND version = ?", so a concurrent change makes it fail instead of
+        // being overwritten. Flushing here returns the bumped version and surfaces the conflict.
+        if (devicePatcher.apply(deviceDTO, existing)) {
+            deviceRepository.flush();
+            deviceListGeneration.bumpAfterCommit();
         }
 
-        Device updated = objectMapper.convertValue(existingMap, Device.class);
-        updated.setCreationTime(existing.getCreationTime());
+        return deviceMapper.toDTO(existing);
+    }
 
-        updated = deviceRepository.save(updated);
+    @Cacheable(value = "devices", key = "#id", sync = true)
+    public DeviceDTO getDevice(Long id) {
+        if (deviceIdFilter.isKnownMissing(id)) {
+            throw new DeviceNotFoundException("Device not found");
+        }
+        return deviceRepository.findDtoById(id).orElseGet(() -> confirmMissing(id));
+    }
 
-        return deviceMapper.toDTO(updated);
+    /**
+     * Records the negative entry, then looks the id up once more on the primary. A create that
+     * committed between the first lookup and the entry has its row found here; one committing later
+     * drops the entry itself. Either way the entry never outlives a committed create.
+     */
+    private DeviceDTO confirmMissing(Long id) {
+        deviceIdFilter.recordMissing(id);
+        DeviceDTO created = deviceRepository.findDtoById(id).orElseThrow(() -> new DeviceNotFoundException("Device not found"));
+        deviceIdFilter.clearMissing(id);
+        return created;
     }
 
-    @Cacheable(value = "devices", key = "#id")
-    public DeviceDTO getDevice(Long id) {
-        Device device = deviceRepository.findById(id)
-                .orElseThrow(() -> new DeviceNotFoundException("Device not found"));
-        return deviceMapper.toDTO(device);
+    /**
+     * Fetches several devices through the "devices" cache: one Redis MGET for what is not in the
+     * in-process tier and one IN query for what Redis lacks. Duplicates are dropped and ids that do
+     * not exist are left out; the rest keep the requested order.
+     */
+    public List<DeviceDTO> getDevices(Collection<Long> ids) {
+        List<Long> uniqueIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("At most " + MAX_BATCH_SIZE + " devices can be fetched at once");
+        }
+        if (uniqueIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, DeviceDTO> devices = cacheManager.getCache("devices").getAll(uniqueIds, missing ->
+                deviceRepository.findDtosByIdIn(missing).stream()
+                        .collect(Collectors.toMap(DeviceDTO::getId, Function.identity())));
+        return uniqueIds.stream().map(devices::get).filter(Objects::nonNull).toList();
     }
 
-    @CacheEvict(value = "allDevices", allEntries = true)
+    @Transactional
     public List<DeviceDTO> createDevicesBulk(List<DeviceDTO> deviceDTOs) {
         Instant now = Instant.now();
         List<Device> devices = deviceDTOs.stream()
-                .peek(dto -> dto.setCreationTime(now))
                 .map(deviceMapper::toEntity)
                 .collect(Collectors.toList());
+        // Bulk always creates: a client-supplied id would turn persist into a SELECT + merge per row.
+        // Sequence-generated ids let Hibernate send the INSERTs as JDBC batches.
+        devices.forEach(device -> {
+            device.setId(null);
+            device.setCreationTime(now);
+        });
         List<Device> savedDevices = deviceRepository.saveAll(devices);
+        deviceIdFilter.recordCreated(savedDevices.stream().map(Device::getId).toList());
+        deviceListGeneration.bumpAfterCommit();
         return savedDevices.stream()
                 .map(deviceMapper::toDTO)
                 .collect(Collectors.toList());
     }
 
-    @Cacheable(value = "allDevices")
+    @Transactional(readOnly = true)
+    // Not cached while Redis is bypassed: the generation is unknown, so no later write could invalidate the page
+    @Cacheable(value = "allDevices",
+            key = "@deviceListGeneration.current() + ':' + #pageable.pageNumber + ':' + T(com.example.devicemanager.service.DeviceService).pageSize(#pageable.pageSize)",
+            condition = "@cacheCircuitBreaker.closed",
+            sync = true)
     public Page<DeviceDTO> listDevices(Pageable pageable) {
         int page = pageable.getPageNumber();
-        int size = Math.min(pageable.getPageSize(), MAX_PAGE_SIZE);
+        int size = pageSize(pageable.getPageSize());
 
         Pageable validatedPageable = PageRequest.of(page, size);
-        return deviceRepository.findAll(validatedPageable)
-                .map(deviceMapper::toDTO);
+        return deviceRepository.findAllDtos(validatedPageable);
     }
 
-    public List<DeviceDTO> getDevicesByBrand(String brand) {
-        List<Device> devices = deviceRepository.findByBrand(brand);
-        return devices.stream()
-                .map(deviceMapper::toDTO)
-                .collect(Collectors.toList());
-    }
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DeviceDTO> listDevicesAfter(String after, int requestedSize) {
+        int size = Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page exists without counting
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<DeviceDTO> devices;
+        if (after == null || after.isBlank()) {
+            devices = deviceRepository.findFirstPage(limit);
+        } else {
+            DeviceCursor cursor = DeviceCursor.decode(after);
+            devices = deviceRepository.findPageAfter(cursor.creationTime(), cursor.id(), limit);
+        }
 
-    public List<DeviceDTO> getDevicesByState(State state) {
-        List<Device> devices = deviceRepository.findByState(state);
-        return devices.stream()
-                .map(deviceMapper::toDTO)
-                .collect(Collectors.toList());
+        boolean hasNext = devices.size() > size;
+        List<DeviceDTO> pageContent = hasNext ? List.copyOf(devices.subList(0, size)) : devices;
+        String nextCursor = hasNext ? DeviceCursor.of(pageContent.get(size - 1)).encode() : null;
+
+        return CursorPageDTO.<DeviceDTO>builder()
+                .content(pageContent)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "devices", key = "#id"),
-            @CacheEvict(value = "devicesAll", allEntries = true)
-    })
-    public void deleteDevice(Long id) {
+    @CacheEvict(value = {"devices", DeviceResponseCache.CACHE_NAME}, key = "#id")
+    @Transactional
+    public void deleteDevice(Long id, Long expectedVersion) {
+        if (deviceRepository.deleteIfNotInUse(id, expectedVersion) > 0) {
+            deviceIdFilter.recordDeleted(id);
+            deviceListGeneration.bumpAfterCommit();
+            return;
+        }
+
+        // Nothing deleted: read the row once to report why
         Device device = deviceRepository.findById(id)
                 .orElseThrow(() -> new DeviceNotFoundException("Device not found"));
-
         if (device.getState() == State.IN_USE) {
             throw new DeviceInUseException("Cannot delete device that is in use");
         }
-        deviceRepository.deleteById(id);
+        checkVersion(device, expectedVersion);
+        throw new DeviceVersionConflictException("Device was modified concurrently");
+    }
+
+    @Transactional
+    @CacheEvict(value = {"devices", DeviceResponseCache.CACHE_NAME}, key = "#id")
+    public void changeState(Long id, State state, Long expectedVersion) {
+        if (deviceRepository.updateStateIfChanged(id, state, expectedVersion) > 0) {
+            deviceListGeneration.bumpAfterCommit();
+            return;
+        }
+
+        Device device = deviceRepository.findById(id)
+                .orElseThrow(() -> new DeviceNotFoundException("Device not found"));
+        checkVersion(device, expectedVersion);
+        if (device.getState() != state) {
+            throw new DeviceVersionConflictException("Device was modified concurrently");
+        }
+        // Claiming a device that is already in use is the race this guard exists for; other repeats are no-ops
+        if (state == State.IN_USE) {
+            throw new DeviceInUseException("Device is already in use");
+        }
+    }
+
+    /**
+     * Page size actually served for a requested one; also part of the page cache key, so requests
+     * above the limit share the cached page instead of adding copies of it.
+     */
+    public static int pageSize(int requested) {
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    private static void checkVersion(Device device, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(device.getVersion())) {
+            throw new PreconditionFailedException("Device version " + device.getVersion()
+                    + " does not match the expected version " + expectedVersion);
+        }
     }
 }
@@ -0,0 +1,163 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.BulkImportResultDTO;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.ImportErrorDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.repository.ReactiveDeviceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DeviceImportService} for the reactive stack: the same line rules, chunking and report,
+ * with each chunk stored by one multi-row INSERT as the lines arrive.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveDeviceImportService {
+
+    private final ReactiveDeviceRepository deviceRepository;
+
+    private final DeviceMapper deviceMapper;
+
+    private final DeviceImportLineParser lineParser;
+
+    private final DeviceListGeneration deviceListGeneration;
+
+    private final DeviceIdFilter deviceIdFilter;
+
+    @Value("${device.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${device.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    // The request decoder already fails a line above spring.codec.max-in-memory-size; below that, longer
+    // lines are reported as the servlet import does
+    @Value("${device.import.max-line-length:10000}")
+    private int maxLineLength;
+
+    /**
+     * @param lines the request body split into lines, delimiters removed
+     */
+    public Mono<BulkImportResultDTO> importDevices(Flux<String> lines) {
+        return Mono.defer(() -> {
+            ImportProgress progress = new ImportProgress();
+            return lines.index()
+                    .filter(line -> !line.getT2().isBlank())
+                    .<ImportLine>handle((line, sink) -> {
+                        progress.received();
+                        long lineNumber = line.getT1() + 1;
+                        if (line.getT2().length() > maxLineLength) {
+                            progress.fail(lineNumber, "Line longer than " + maxLineLength + " characters");
+                            return;
+                        }
+                        DeviceImportLineParser.Line parsed = lineParser.parse(line.getT2());
+                        if (parsed.error() != null) {
+                            progress.fail(lineNumber, parsed.error());
+                            return;
+                        }
+                        Device device = deviceMapper.toEntity(parsed.device());
+                        device.setCreationTime(Instant.now());
+                        sink.next(new ImportLine(lineNumber, device));
+                    })
+                    .buffer(chunkSize)
+                    .concatMap(chunk -> commitChunk(chunk, progress))
+                    .then(Mono.fromSupplier(progress::result))
+                    // Chunks commit on their own, so the list changes even when the import stops part way
+                    .flatMap(result -> bumpIfImported(progress).thenReturn(result))
+                    .onErrorResume(e -> bumpIfImported(progress).then(Mono.error(e)))
+                    .doOnNext(result -> log.info("Device import finished: received={}, imported={}, failed={}",
+                            result.getReceived(), result.getImported(), result.getFailed()));
+        });
+    }
+
+    private Mono<Void> commitChunk(List<ImportLine> chunk, ImportProgress progress) {
+        return deviceRepository.insertAll(chunk.stream().map(ImportLine::device).toList())
+                .flatMap(created -> {
+                    progress.imported(created.size());
+                    List<Long> ids = created.stream().map(DeviceDTO::getId).toList();
+                    return Mono.fromRunnable(() -> deviceIdFilter.recordCreated(ids))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .then()
+                .onErrorResume(DeviceImportService::isRowError, e -> {
+                    if (chunk.size() == 1) {
+                        progress.fail(chunk.get(0).number(), "Rejected by database: " + e.getMessage());
+                        return Mono.empty();
+                    }
+                    // Retry row by row so that only the offending lines fail
+                    log.warn("Device import chunk of {} rows failed, retrying it row by row: {}",
+                            chunk.size(), e.getMessage());
+                    return Flux.fromIterable(chunk)
+                            .concatMap(line -> commitChunk(List.of(line), progress))
+                            .then();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Device import chunk of {} rows failed: {}", chunk.size(), e.getMessage());
+                    chunk.forEach(line -> progress.fail(line.number(), "Chunk rejected by database: " + e.getMessage()));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> bumpIfImported(ImportProgress progress) {
+        if (!progress.anyImported()) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(deviceListGeneration::bumpAfterCommit)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private record ImportLine(long number, Device device) {
+    }
+
+    // Lines are parsed while the previous chunk is being inserted, so both sides update it
+    private class ImportProgress {
+        private long received;
+        private long imported;
+        private long failed;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private synchronized void received() {
+            received++;
+        }
+
+        private synchronized void imported(int count) {
+            imported += count;
+        }
+
+        private synchronized boolean anyImported() {
+            return imported > 0;
+        }
+
+        private synchronized void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportErrorDTO(line, message));
+            }
+        }
+
+        private synchronized BulkImportResultDTO result() {
+            return BulkImportResultDTO.builder()
+                    .received(received)
+                    .imported(imported)
+                    .failed(failed)
+                    .errors(List.copyOf(errors))
+                    .errorsTruncated(failed > errors.size())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.ReactiveDeviceCache;
+import com.example.devicemanager.config.TwoLevelCacheManager;
+import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.exception.BusinessException;
+import com.example.devicemanager.exception.DeviceInUseException;
+import com.example.devicemanager.exception.DeviceNotFoundException;
+import com.example.devicemanager.exception.DeviceVersionConflictException;
+import com.example.devicemanager.exception.PreconditionFailedException;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.ReactiveDeviceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DeviceService} for the reactive stack: the same rules, exceptions and guarded writes, on
+ * R2DBC and the non-blocking Redis reads of {@link ReactiveDeviceCache}.
+ * <p>
+ * Writes end with the blocking bookkeeping of the servlet stack (cache eviction with its breaker,
+ * list generation bump, id filter), run on the bounded elastic scheduler. Reads skip the in-process
+ * cache tier and the id filter, which would block.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveDeviceService {
+
+    private final ReactiveDeviceRepository deviceRepository;
+
+    private final ReactiveDeviceCache deviceCache;
+
+    private final DeviceMapper deviceMapper;
+
+    private final DevicePatcher devicePatcher;
+
+    private final DeviceListGeneration deviceListGeneration;
+
+    private final DeviceIdFilter deviceIdFilter;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    private static final int MAX_PAGE_SIZE = 20;
+
+    private static final int MAX_BATCH_SIZE = 500;
+
+    public Mono<DeviceDTO> createDevice(CreateDeviceDTO deviceDTO) {
+        Device device = deviceMapper.toEntity(deviceDTO);
+        device.setCreationTime(Instant.now());
+        return deviceRepository.insertAll(List.of(device))
+                .flatMap(created -> afterCreate(created).thenReturn(created.get(0)));
+    }
+
+    public Mono<DeviceDTO> updateDevice(Long id, DeviceDTO deviceDTO, Long expectedVersion) {
+        return deviceRepository.findDtoById(id)
+                .switchIfEmpty(Mono.error(() -> new BusinessException("Device with id " + id + " not found")))
+                .flatMap(existing -> {
+                    checkVersion(existing, expectedVersion);
+                    Device device = toEntity(existing);
+                    if (device.getState() == State.IN_USE && devicePatcher.changesNameOrBrand(deviceDTO, device)) {
+                        return Mono.error(new BusinessException("Cannot update name or brand while device is in use"));
+                    }
+                    if (!devicePatcher.apply(deviceDTO, device)) {
+                        return Mono.just(existing);
+                    }
+                    // Same guard as the JPA version check: a concurrent change makes the UPDATE match no row
+                    return deviceRepository.updateIfVersion(device).flatMap(updated -> {
+                        if (updated == 0) {
+                            return Mono.error(new DeviceVersionConflictException("Device was modified concurrently"));
+                        }
+                        device.setVersion(device.getVersion() + 1);
+                        return afterChange(id).thenReturn(deviceMapper.toDTO(device));
+                    });
+                });
+    }
+
+    public Mono<DeviceDTO> getDevice(Long id) {
+        return deviceCache.get(id)
+                .switchIfEmpty(Mono.defer(() -> deviceRepository.findDtoById(id)
+                        .flatMap(device -> deviceCache.fill(List.of(device)).thenReturn(device))))
+                .switchIfEmpty(Mono.error(() -> new DeviceNotFoundException("Device not found")));
+    }
+
+    /**
+     * Fetches several devices with one Redis MGET and one IN query for what Redis lacks. Duplicates
+     * are dropped and ids that do not exist are left out; the rest keep the requested order.
+     */
+    public Mono<List<DeviceDTO>> getDevices(Collection<Long> ids) {
+        List<Long> uniqueIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            return Mono.error(new BusinessException("At most " + MAX_BATCH_SIZE + " devices can be fetched at once"));
+        }
+        if (uniqueIds.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return deviceCache.getAll(uniqueIds).flatMap(cached -> {
+            List<Long> missing = uniqueIds.stream().filter(id -> !cached.containsKey(id)).toList();
+            Mono<Map<Long, DeviceDTO>> loaded = missing.isEmpty()
+                    ? Mono.just(Map.of())
+                    : deviceRepository.findDtosByIdIn(missing).collectList()
+                            .flatMap(devices -> deviceCache.fill(devices).thenReturn(devices.stream()
+                                    .collect(Collectors.toMap(DeviceDTO::getId, Function.identity()))));
+            return loaded.map(found -> uniqueIds.stream()
+                    .map(id -> cached.containsKey(id) ? cached.get(id) : found.get(id))
+                    .filter(Objects::nonNull)
+                    .toList());
+        });
+    }
+
+    /**
+     * Creates all devices in one multi-row INSERT, so the batch is stored entirely or not at all.
+     */
+    public Mono<List<DeviceDTO>> createDevicesBulk(List<DeviceDTO> deviceDTOs) {
+        Instant now = Instant.now();
+        List<Device> devices = deviceDTOs.stream()
+                .map(deviceMapper::toEntity)
+                .collect(Collectors.toList());
+        // Bulk always creates, with sequence-generated ids
+        devices.forEach(device -> {
+            device.setId(null);
+            device.setCreationTime(now);
+        });
+        return deviceRepository.insertAll(devices)
+                .flatMap(created -> afterCreate(created).thenReturn(created));
+    }
+
+    public Mono<Page<DeviceDTO>> listDevices(int page, int requestedSize) {
+        int size = Math.min(requestedSize, MAX_PAGE_SIZE);
+        PageRequest pageable = PageRequest.of(page, size);
+        return Mono.zip(deviceRepository.findAllDtos(pageable.getOffset(), size).collectList(), deviceRepository.count())
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    public Mono<CursorPageDTO<DeviceDTO>> listDevicesAfter(String after, int requestedSize) {
+        int size = Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page exists without counting
+        Flux<DeviceDTO> devices;
+        if (after == null || after.isBlank()) {
+            devices = deviceRepository.findFirstPage(size + 1);
+        } else {
+            DeviceCursor cursor;
+            try {
+                cursor = DeviceCursor.decode(after);
+            } catch (BusinessException e) {
+                return Mono.error(e);
+            }
+            devices = deviceRepository.findPageAfter(cursor.creationTime(), cursor.id(), size + 1);
+        }
+
+        return devices.collectList().map(page -> {
+            boolean hasNext = page.size() > size;
+            List<DeviceDTO> pageContent = hasNext ? List.copyOf(page.subList(0, size)) : page;
+            String nextCursor = hasNext ? DeviceCursor.of(pageContent.get(size - 1)).encode() : null;
+
+            return CursorPageDTO.<DeviceDTO>builder()
+                    .content(pageContent)
+                    .size(size)
+                    .hasNext(hasNext)
+                    .nextCursor(nextCursor)
+                    .build();
+        });
+    }
+
+    public Flux<DeviceDTO> getDevicesByBrand(String brand) {
+        return deviceRepository.findByBrand(brand);
+    }
+
+    public Flux<DeviceDTO> getDevicesByState(State state) {
+        return deviceRepository.findByState(state);
+    }
+
+    public Mono<Void> deleteDevice(Long id, Long expectedVersion) {
+        return deviceRepository.deleteIfNotInUse(id, expectedVersion).flatMap(deleted -> {
+            if (deleted > 0) {
+                return afterChange(id).then(blocking(() -> deviceIdFilter.recordDeleted(id)));
+            }
+            // Nothing deleted: read the row once to report why
+            return deviceRepository.findDtoById(id)
+                    .switchIfEmpty(Mono.error(() -> new DeviceNotFoundException("Device not found")))
+                    .flatMap(device -> {
+                        if (device.getState() == State.IN_USE) {
+                            return Mono.error(new DeviceInUseException("Cannot delete device that is in use"));
+                        }
+                        checkVersion(device, expectedVersion);
+                        return Mono.error(new DeviceVersionConflictException("Device was modified concurrently"));
+                    });
+        });
+    }
+
+    public Mono<Void> changeState(Long id, State state, Long expectedVersion) {
+        return deviceRepository.updateStateIfChanged(id, state, expectedVersion).flatMap(updated -> {
+            if (updated > 0) {
+                return afterChange(id);
+            }
+            return deviceRepository.findDtoById(id)
+                    .switchIfEmpty(Mono.error(() -> new DeviceNotFoundException("Device not found")))
+                    .flatMap(device -> {
+                        checkVersion(device, expectedVersion);
+                        if (device.getState() != state) {
+                            return Mono.error(new DeviceVersionConflictException("Device was modified concurrently"));
+                        }
+                        // Claiming a device that is already in use is the race this guard exists for; other repeats are no-ops
+                        if (state == State.IN_USE) {
+                            return Mono.error(new DeviceInUseException("Device is already in use"));
+                        }
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private Mono<Void> afterCreate(List<DeviceDTO> created) {
+        List<Long> ids = created.stream().map(DeviceDTO::getId).toList();
+        return blocking(() -> {
+            deviceIdFilter.recordCreated(ids);
+            deviceListGeneration.bumpAfterCommit();
+        });
+    }
+
+    // Evicts rather than puts: the eviction reaches every node's in-process tier and is replayed by the
+    // cache breaker if Redis cannot be written now
+    private Mono<Void> afterChange(Long id) {
+        return blocking(() -> {
+            cacheManager.getCache("devices").evict(id);
+            cacheManager.getCache(DeviceResponseCache.CACHE_NAME).evict(id);
+            deviceListGeneration.bumpAfterCommit();
+        });
+    }
+
+    // The id filter, the list generation and the two-level cache use the blocking Redis client
+    private static Mono<Void> blocking(Runnable action) {
+        return Mono.fromRunnable(action).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private Device toEntity(DeviceDTO dto) {
+        Device device = deviceMapper.toEntity(dto);
+        device.setCreationTime(dto.getCreationTime());
+        device.setVersion(dto.getVersion());
+        return device;
+    }
+
+    private static void checkVersion(DeviceDTO device, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(device.getVersion())) {
+            throw new PreconditionFailedException("Device version " + device.getVersion()
+                    + " does not match the expected version " + expectedVersion);
+        }
+    }
+}
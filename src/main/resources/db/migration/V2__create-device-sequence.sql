@@ -0,0 +1,9 @@
+-- Hibernate cannot batch inserts for IDENTITY ids, so devices get their ids from a
+-- pooled sequence instead. INCREMENT BY must match the allocationSize of Device.id.
+-- The pooled optimizer treats the first value as the top of its block, hence the
+-- start value of MAX(id) + 50 (the first block then begins at MAX(id) + 1).
+SET @devices_seq_start = (SELECT COALESCE(MAX(id), 0) + 50 FROM devices);
+SET @create_devices_seq = CONCAT('CREATE SEQUENCE devices_seq START WITH ', @devices_seq_start, ' INCREMENT BY 50');
+PREPARE create_devices_seq_stmt FROM @create_devices_seq;
+EXECUTE create_devices_seq_stmt;
+DEALLOCATE PREPARE create_devices_seq_stmt;
@@ -0,0 +1,8 @@
+-- findByBrand / streamByBrand
+CREATE INDEX idx_devices_brand ON devices (brand);
+
+-- findByState / streamByState use the leftmost column; combined state + brand filters use both
+CREATE INDEX idx_devices_state_brand ON devices (state, brand);
+
+-- Keyset pagination seeks and orders on (creation_time, id)
+CREATE INDEX idx_devices_creation_time ON devices (creation_time, id);
@@ -0,0 +1,2 @@
+-- Optimistic locking: Hibernate bumps the version on every UPDATE and adds "AND version = ?" to it
+ALTER TABLE devices ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
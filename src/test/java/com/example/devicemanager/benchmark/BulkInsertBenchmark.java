@@ -0,0 +1,99 @@
+package com.example.devicemanager.benchmark;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.service.DeviceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Rows/sec for a 10k-device bulk payload.
+ * <p>
+ * "before" replays what IDENTITY ids forced Hibernate to do: one INSERT round-trip per row inside
+ * a single transaction. "after" goes through {@link DeviceService#createDevicesBulk}, which now
+ * batches the INSERTs (rewritten into multi-row statements by rewriteBatchedStatements).
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dtest=BulkInsertBenchmark} against a real MariaDB.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class BulkInsertBenchmark {
+
+    private static final int PAYLOAD_SIZE = 10_000;
+    private static final int ITERATIONS = 5;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM devices");
+    }
+
+    @Test
+    void bulkInsertRowsPerSecond() {
+        List<DeviceDTO> payload = payload();
+
+        // Warm-up: JIT, connection pool and statement caches
+        rowByRowInsert(payload);
+        cleanUp();
+        deviceService.createDevicesBulk(payload);
+        cleanUp();
+
+        long rowByRowNanos = 0;
+        long batchedNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            rowByRowInsert(payload);
+            rowByRowNanos += System.nanoTime() - start;
+            cleanUp();
+
+            start = System.nanoTime();
+            deviceService.createDevicesBulk(payload);
+            batchedNanos += System.nanoTime() - start;
+            cleanUp();
+        }
+
+        System.out.printf("Bulk insert of %d devices (avg of %d runs)%n", PAYLOAD_SIZE, ITERATIONS);
+        System.out.printf("  before (row-by-row): %,.0f rows/sec%n", rowsPerSecond(rowByRowNanos));
+        System.out.printf("  after  (batched)   : %,.0f rows/sec%n", rowsPerSecond(batchedNanos));
+    }
+
+    private void rowByRowInsert(List<DeviceDTO> payload) {
+        Timestamp now = Timestamp.from(Instant.now());
+        transactionTemplate.executeWithoutResult(status -> payload.forEach(dto -> jdbcTemplate.update(
+                "INSERT INTO devices (name, brand, state, creation_time) VALUES (?, ?, ?, ?)",
+                dto.getName(), dto.getBrand(), dto.getState().name(), now)));
+    }
+
+    private double rowsPerSecond(long totalNanos) {
+        return PAYLOAD_SIZE * ITERATIONS / (totalNanos / 1_000_000_000.0);
+    }
+
+    private static List<DeviceDTO> payload() {
+        State[] states = State.values();
+        return IntStream.range(0, PAYLOAD_SIZE)
+                .mapToObj(i -> DeviceDTO.builder()
+                        .name("Bench device " + i)
+                        .brand("Brand " + (i % 50))
+                        .state(states[i % states.length])
+                        .build())
+                .toList();
+    }
+}
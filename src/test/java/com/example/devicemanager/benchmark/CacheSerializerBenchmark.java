@@ -0,0 +1,116 @@
+package com.example.devicemanager.benchmark;
+
+import com.example.devicemanager.config.DeviceCacheSerializer;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Serialization cost of the cached values: "jdk*" is the JDK serialization RedisCacheManager used
+ * by default, "compact*" is {@link DeviceCacheSerializer}. "device" is one {@link DeviceDTO} (the
+ * "devices" cache), "page" a page of 20 (the "allDevices" cache). Bytes per entry are printed
+ * before the run.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dtest=CacheSerializerBenchmark}.
+ */
+@Tag("benchmark")
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializerBenchmark {
+
+    private static final DeviceDTO DEVICE = device(1);
+
+    private static final Page<DeviceDTO> PAGE = new PageImpl<>(
+            IntStream.rangeClosed(1, 20).mapToObj(CacheSerializerBenchmark::device).toList(),
+            PageRequest.of(0, 20), 1_000);
+
+    private final RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+    private final RedisSerializer<Object> compact = new DeviceCacheSerializer();
+
+    private final byte[] jdkDevice = jdk.serialize(DEVICE);
+    private final byte[] jdkPage = jdk.serialize(PAGE);
+    private final byte[] compactDevice = compact.serialize(DEVICE);
+    private final byte[] compactPage = compact.serialize(PAGE);
+
+    private static DeviceDTO device(int i) {
+        return new DeviceDTO((long) i, "Device " + i, "Brand " + (i % 5), State.values()[i % 3],
+                Instant.parse("2025-05-25T10:15:30.123Z").plusSeconds(i), (long) i % 4);
+    }
+
+    @Benchmark
+    public byte[] jdkSerializeDevice() {
+        return jdk.serialize(DEVICE);
+    }
+
+    @Benchmark
+    public byte[] compactSerializeDevice() {
+        return compact.serialize(DEVICE);
+    }
+
+    @Benchmark
+    public Object jdkDeserializeDevice() {
+        return jdk.deserialize(jdkDevice);
+    }
+
+    @Benchmark
+    public Object compactDeserializeDevice() {
+        return compact.deserialize(compactDevice);
+    }
+
+    @Benchmark
+    public byte[] jdkSerializePage() {
+        return jdk.serialize(PAGE);
+    }
+
+    @Benchmark
+    public byte[] compactSerializePage() {
+        return compact.serialize(PAGE);
+    }
+
+    @Benchmark
+    public Object jdkDeserializePage() {
+        return jdk.deserialize(jdkPage);
+    }
+
+    @Benchmark
+    public Object compactDeserializePage() {
+        return compact.deserialize(compactPage);
+    }
+
+    @Test
+    void runJmh() throws Exception {
+        System.out.printf("Bytes per entry: device jdk=%d compact=%d, page of 20 jdk=%d compact=%d%n",
+                jdkDevice.length, compactDevice.length, jdkPage.length, compactPage.length);
+        new Runner(new OptionsBuilder()
+                .include(CacheSerializerBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.devicemanager.benchmark;
+
+import com.example.devicemanager.DeviceManagerApplication;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.DeviceRepository;
+import com.example.devicemanager.service.DeviceMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Latency and allocation of the read paths: "entity*" loads {@link Device} entities into the
+ * persistence context and copies them with {@link DeviceMapper}, as the reads did before;
+ * "dto*" uses the constructor-expression projections that build {@link DeviceDTO} from the result
+ * set. Both run in a read-only transaction against the configured MariaDB, so the difference is
+ * hydration and mapping. Compare {@code gc.alloc.rate.norm} (bytes per operation).
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dtest=DeviceReadPathBenchmark}.
+ */
+@Tag("benchmark")
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceReadPathBenchmark {
+
+    private static final String BRAND_PREFIX = "ReadBench brand ";
+    private static final int ROWS = 2_000;
+    private static final int BRANDS = 20;
+
+    private ConfigurableApplicationContext context;
+    private DeviceRepository deviceRepository;
+    private DeviceMapper deviceMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private JdbcTemplate jdbcTemplate;
+
+    private Long deviceId;
+    private final String brand = BRAND_PREFIX + 7;
+    private final PageRequest page = PageRequest.of(0, 20);
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(DeviceManagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false", "logging.level.root=WARN")
+                .run();
+        deviceRepository = context.getBean(DeviceRepository.class);
+        deviceMapper = context.getBean(DeviceMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Timestamp now = Timestamp.from(Instant.now());
+        State[] states = State.values();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO devices (id, name, brand, state, creation_time) VALUES (NEXT VALUE FOR devices_seq, ?, ?, ?, ?)",
+                IntStream.range(0, ROWS)
+                        .mapToObj(i -> new Object[]{"Device " + i, BRAND_PREFIX + (i % BRANDS), states[i % states.length].name(), now})
+                        .toList());
+        deviceId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM devices WHERE brand = ?", Long.class, brand);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        jdbcTemplate.update("DELETE FROM devices WHERE brand LIKE ?", BRAND_PREFIX + "%");
+        context.close();
+    }
+
+    @Benchmark
+    public DeviceDTO entityById() {
+        return readOnly.execute(status -> deviceMapper.toDTO(deviceRepository.findById(deviceId).orElseThrow()));
+    }
+
+    @Benchmark
+    public DeviceDTO dtoById() {
+        return readOnly.execute(status -> deviceRepository.findDtoById(deviceId).orElseThrow());
+    }
+
+    @Benchmark
+    public List<DeviceDTO> entityByBrand() {
+        return readOnly.execute(status -> entityManager
+                .createQuery("SELECT d FROM Device d WHERE d.brand = :brand", Device.class)
+                .setParameter("brand", brand)
+                .getResultList()
+                .stream()
+                .map(deviceMapper::toDTO)
+                .toList());
+    }
+
+    @Benchmark
+    public List<DeviceDTO> dtoByBrand() {
+        return readOnly.execute(status -> deviceRepository.findByBrand(brand));
+    }
+
+    @Benchmark
+    public Page<DeviceDTO> entityPage() {
+        return readOnly.execute(status -> deviceRepository.findAll(page).map(deviceMapper::toDTO));
+    }
+
+    @Benchmark
+    public Page<DeviceDTO> dtoPage() {
+        return readOnly.execute(status -> deviceRepository.findAllDtos(page));
+    }
+
+    @Test
+    void runJmh() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DeviceReadPathBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
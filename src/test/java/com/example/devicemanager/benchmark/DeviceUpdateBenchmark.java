@@ -0,0 +1,98 @@
+package com.example.devicemanager.benchmark;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.service.DevicePatcher;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of applying a device update in memory, before the database is involved.
+ * <p>
+ * "legacyRoundTrip" is the former {@code updateDevice} body: a new ObjectMapper per call, entity and
+ * DTO converted to maps, merged and converted back to a detached entity. "patcher" is
+ * {@link DevicePatcher} applied to the managed entity. Look at {@code gc.alloc.rate.norm} for bytes
+ * allocated per update.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dtest=DeviceUpdateBenchmark}.
+ */
+@Tag("benchmark")
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceUpdateBenchmark {
+
+    private final DevicePatcher patcher = new DevicePatcher();
+
+    private final Device device = Device.builder()
+            .id(1L)
+            .name("Device")
+            .brand("Brand")
+            .state(State.AVAILABLE)
+            .creationTime(Instant.parse("2025-05-25T10:15:30Z"))
+            .build();
+
+    // Alternate between two patches so every invocation really changes the entity
+    private final DeviceDTO[] patches = {
+            DeviceDTO.builder().name("Renamed").state(State.INACTIVE).build(),
+            DeviceDTO.builder().name("Device").state(State.AVAILABLE).build()
+    };
+
+    private int next;
+
+    @Benchmark
+    public Device legacyRoundTrip() {
+        DeviceDTO patch = patches[next++ & 1];
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        Map<String, Object> existingMap = objectMapper.convertValue(device, new TypeReference<Map<String, Object>>() { });
+        Map<String, Object> dtoMap = objectMapper.convertValue(patch, new TypeReference<Map<String, Object>>() { });
+
+        for (Map.Entry<String, Object> entry : existingMap.entrySet()) {
+            Object newValue = dtoMap.get(entry.getKey());
+            if (newValue != null) {
+                entry.setValue(newValue);
+            }
+        }
+
+        Device updated = objectMapper.convertValue(existingMap, Device.class);
+        updated.setCreationTime(device.getCreationTime());
+        return updated;
+    }
+
+    @Benchmark
+    public boolean patcher() {
+        return patcher.apply(patches[next++ & 1], device);
+    }
+
+    @Test
+    void runJmh() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DeviceUpdateBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
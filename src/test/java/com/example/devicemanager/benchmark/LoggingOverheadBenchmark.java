@@ -0,0 +1,183 @@
+package com.example.devicemanager.benchmark;
+
+import com.example.devicemanager.DeviceManagerApplication;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.service.DeviceService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput and p50/p99 latency of the running application under two logging setups:
+ * <ul>
+ *     <li>{@code synchronous}: the previous setup, with {@code show-sql} printing every statement, an INFO
+ *     line per controller call and Boot's synchronous console appender;</li>
+ *     <li>{@code async-sampled}: the defaults, with the async console of {@code logback-spring.xml}, a
+ *     sampled request line and the rate-limited slow-query log.</li>
+ * </ul>
+ * Each of {@code concurrency} clients sends its next request as soon as the previous one completes: a
+ * share of {@code db-share} keyset pages, the rest single-device reads. Each setup is warmed up before it
+ * is measured.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dtest=LoggingOverheadBenchmark}, against the configured
+ * MariaDB/Redis; tune with {@code -Dbenchmark.concurrency=50 -Dbenchmark.duration=20s
+ * -Dbenchmark.warm-up=5s -Dbenchmark.db-share=0.3}.
+ */
+@Tag("benchmark")
+public class LoggingOverheadBenchmark {
+
+    private static final String BRAND = "LoggingBench brand";
+    private static final int DEVICES = 2_000;
+
+    private final int concurrency = Integer.getInteger("benchmark.concurrency", 50);
+    private final Duration duration = Duration.parse("PT" + System.getProperty("benchmark.duration", "20s"));
+    private final Duration warmUp = Duration.parse("PT" + System.getProperty("benchmark.warm-up", "5s"));
+    private final double dbShare = Double.parseDouble(System.getProperty("benchmark.db-share", "0.3"));
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    @Test
+    void compareLoggingSetups() throws Exception {
+        List<String> results = new ArrayList<>();
+        List<Long> ids = List.of();
+        try {
+            for (boolean synchronous : new boolean[]{true, false}) {
+                try (ConfigurableApplicationContext context = start(synchronous)) {
+                    if (ids.isEmpty()) {
+                        ids = seed(context);
+                    }
+                    String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/devices";
+                    run(baseUrl, ids, warmUp);
+                    results.add(run(baseUrl, ids, duration).format(synchronous ? "synchronous" : "async-sampled"));
+                }
+            }
+        } finally {
+            cleanUp();
+        }
+
+        System.out.printf("%n%-14s %10s %8s %10s %9s %9s%n", "logging", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        results.forEach(System.out::println);
+        System.out.printf("(%d clients, %s measured, %.0f%% database reads)%n%n", concurrency, duration, dbShare * 100);
+    }
+
+    private static ConfigurableApplicationContext start(boolean synchronous) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "device.cache.warm-up.enabled=false"));
+        if (synchronous) {
+            properties.addAll(List.of(
+                    "logging.config=classpath:logback-synchronous.xml",
+                    "spring.jpa.show-sql=true",
+                    "spring.jpa.properties.hibernate.log_slow_query=0",
+                    "logging.level.com.example.devicemanager.controller=DEBUG",
+                    "device.request-log.enabled=false"));
+        }
+        return new SpringApplicationBuilder(DeviceManagerApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    private static List<Long> seed(ConfigurableApplicationContext context) {
+        // Through the service, so the ids reach the id filter
+        List<DeviceDTO> devices = IntStream.range(0, DEVICES)
+                .mapToObj(i -> DeviceDTO.builder().name("Device " + i).brand(BRAND).state(State.AVAILABLE).build())
+                .toList();
+        return context.getBean(DeviceService.class).createDevicesBulk(devices).stream().map(DeviceDTO::getId).toList();
+    }
+
+    private static void cleanUp() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DeviceManagerApplication.class)
+                .properties("spring.main.web-application-type=none", "device.cache.warm-up.enabled=false", "logging.level.root=WARN")
+                .run()) {
+            context.getBean(JdbcTemplate.class).update("DELETE FROM devices WHERE brand = ?", BRAND);
+        }
+    }
+
+    private Result run(String baseUrl, List<Long> ids, Duration length) throws Exception {
+        long end = System.nanoTime() + length.toNanos();
+        List<Future<Client>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> new Client().run(baseUrl, ids, end)));
+            }
+        }
+        long[] latencies = new long[0];
+        int errors = 0;
+        for (Future<Client> future : clients) {
+            Client client = future.get();
+            long[] merged = Arrays.copyOf(latencies, latencies.length + client.count);
+            System.arraycopy(client.latencies, 0, merged, latencies.length, client.count);
+            latencies = merged;
+            errors += client.errors;
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, errors, length);
+    }
+
+    private class Client {
+
+        long[] latencies = new long[1024];
+        int count;
+        int errors;
+
+        Client run(String baseUrl, List<Long> ids, long end) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < end) {
+                URI uri = random.nextDouble() < dbShare
+                        ? URI.create(baseUrl + "/cursor?size=20")
+                        : URI.create(baseUrl + "/" + ids.get(random.nextInt(ids.size())));
+                long started = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        errors++;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - started;
+            }
+            return this;
+        }
+    }
+
+    private record Result(long[] latencies, int errors, Duration length) {
+
+        String format(String setup) {
+            return String.format("%-14s %10d %8d %10.0f %9.1f %9.1f", setup, latencies.length, errors,
+                    latencies.length / (length.toMillis() / 1000.0), percentile(0.50), percentile(0.99));
+        }
+
+        private double percentile(double p) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.devicemanager.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final FaultyRedis redis = new FaultyRedis();
+
+    private final CacheCircuitBreaker breaker = new CacheCircuitBreaker(settings(), meterRegistry, clock::get);
+
+    // Replays are run by the test, as the replay thread would
+    private final List<Runnable> replays = new CopyOnWriteArrayList<>();
+
+    private final CircuitBreakingCache cache = new CircuitBreakingCache(redis, breaker, replays::add);
+
+    @Test
+    @DisplayName("Breaker - failures open it: calls miss without reaching Redis, and skipped evictions are replayed once probes succeed")
+    void failures_openAndRecover() {
+        redis.getNativeCache().put(1L, "stale");
+        redis.failing = true;
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(cache.get(1L)).isNull();
+        }
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+
+        cache.evict(1L);
+        assertThat(cache.get(1L)).isNull();
+        assertThat(redis.calls).hasValue(4);
+        assertThat(bypassed("open")).isEqualTo(2);
+
+        redis.failing = false;
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.get(2L);
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.HALF_OPEN);
+        cache.get(3L);
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.CLOSED);
+
+        assertThat(replays).hasSize(1);
+        assertThat(redis.getNativeCache().get(1L)).isEqualTo("stale");
+        replays.get(0).run();
+        assertThat(redis.getNativeCache().get(1L)).isNull();
+        assertThat(meterRegistry.get("cache.breaker.state").tag("state", "closed").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Breaker - while it is open, evictions and skipped puts are queued without a Redis call and replayed once")
+    void open_queuesEvictions() {
+        redis.getNativeCache().put(1L, "stale");
+        redis.getNativeCache().put(2L, "stale");
+        redis.failing = true;
+        for (int i = 0; i < 4; i++) {
+            cache.get(3L);
+        }
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+        redis.failing = false;
+
+        cache.evict(1L);
+        cache.put(2L, "fresh");
+
+        assertThat(redis.calls).hasValue(4);
+        assertThat(replays).isEmpty();
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.get(4L);
+        cache.get(5L);
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.CLOSED);
+        assertThat(replays).hasSize(1);
+        replays.get(0).run();
+        assertThat(redis.getNativeCache().get(1L)).isNull();
+        assertThat(redis.getNativeCache().get(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Breaker - an eviction that fails while it stays closed is replayed right away")
+    void closed_failedEvictionReplayed() {
+        redis.getNativeCache().put(1L, "stale");
+        redis.failing = true;
+
+        cache.evict(1L);
+        cache.evict(2L);
+
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.CLOSED);
+        assertThat(replays).hasSize(1);
+        redis.failing = false;
+        replays.get(0).run();
+        assertThat(redis.getNativeCache().get(1L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Breaker - calls made by the caller: refused while open, and a cancelled probe gives its permission back")
+    void callerMadeCalls_permissions() {
+        redis.failing = true;
+        for (int i = 0; i < 4; i++) {
+            cache.get(1L);
+        }
+        assertThat(breaker.acquirePermission("devices", "get")).isFalse();
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(breaker.acquirePermission("devices", "get")).isTrue();
+        assertThat(breaker.acquirePermission("devices", "get")).isTrue();
+        assertThat(breaker.acquirePermission("devices", "get")).isFalse();
+        breaker.releasePermission();
+        assertThat(breaker.acquirePermission("devices", "get")).isTrue();
+
+        breaker.recordSuccess(0);
+        breaker.recordSuccess(0);
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Breaker - slow calls open it, and a slow probe keeps it open")
+    void slowCalls_open() {
+        redis.latency = Duration.ofMillis(100);
+
+        for (int i = 0; i < 4; i++) {
+            cache.put((long) i, "value");
+        }
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.get(1L);
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+        assertThat(bypassed("error")).isZero();
+    }
+
+    private double bypassed(String reason) {
+        return meterRegistry.find("cache.breaker.bypassed").tag("reason", reason).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static DeviceCacheProperties.Breaker settings() {
+        DeviceCacheProperties.Breaker settings = new DeviceCacheProperties.Breaker();
+        settings.setWindowSize(10);
+        settings.setMinimumCalls(4);
+        settings.setSlowCallDuration(Duration.ofMillis(50));
+        settings.setOpenDuration(Duration.ofSeconds(10));
+        settings.setProbeCalls(2);
+        return settings;
+    }
+
+    /**
+     * Stand-in for the Redis cache that fails or takes {@code latency} (on the test clock) on demand.
+     */
+    private class FaultyRedis extends ConcurrentMapCache {
+
+        volatile boolean failing;
+
+        volatile Duration latency = Duration.ZERO;
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        FaultyRedis() {
+            super("devices", false);
+        }
+
+        @Override
+        @Nullable
+        public ValueWrapper get(Object key) {
+            fault();
+            return super.get(key);
+        }
+
+        @Override
+        public void put(Object key, @Nullable Object value) {
+            fault();
+            super.put(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            fault();
+            super.evict(key);
+        }
+
+        private void fault() {
+            calls.incrementAndGet();
+            clock.addAndGet(latency.toNanos());
+            if (failing) {
+                throw new QueryTimeoutException("Redis command timed out");
+            }
+        }
+    }
+}
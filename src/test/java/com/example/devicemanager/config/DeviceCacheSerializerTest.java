@@ -0,0 +1,62 @@
+package com.example.devicemanager.config;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.SerializedDeviceDTO;
+import com.example.devicemanager.model.State;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceCacheSerializerTest {
+
+    private final DeviceCacheSerializer serializer = new DeviceCacheSerializer();
+
+    private final DeviceDTO device = new DeviceDTO(42L, "Pixel 9", "Google", State.IN_USE,
+            Instant.parse("2025-05-25T10:15:30.123456789Z"), 3L);
+
+    @Test
+    @DisplayName("Round trip - device and page of devices, null fields preserved")
+    void roundTrip() {
+        DeviceDTO partial = DeviceDTO.builder().id(7L).name("Partial").build();
+        Page<DeviceDTO> page = new PageImpl<>(List.of(device, partial), PageRequest.of(2, 20), 42);
+
+        assertThat(serializer.deserialize(serializer.serialize(device))).usingRecursiveComparison().isEqualTo(device);
+
+        @SuppressWarnings("unchecked")
+        Page<DeviceDTO> restored = (Page<DeviceDTO>) serializer.deserialize(serializer.serialize(page));
+        assertThat(restored.getNumber()).isEqualTo(2);
+        assertThat(restored.getSize()).isEqualTo(20);
+        assertThat(restored.getTotalElements()).isEqualTo(42);
+        assertThat(restored.getContent()).usingRecursiveFieldByFieldElementComparator().containsExactly(device, partial);
+    }
+
+    @Test
+    @DisplayName("Round trip - response bytes of a device, with and without a gzip variant")
+    void roundTrip_serializedDevice() {
+        SerializedDeviceDTO withGzip = new SerializedDeviceDTO(3L, new byte[]{'{', '}'}, new byte[]{31, -117, 8});
+        SerializedDeviceDTO jsonOnly = new SerializedDeviceDTO(null, new byte[]{'{', '}'}, null);
+
+        assertThat(serializer.deserialize(serializer.serialize(withGzip))).isEqualTo(withGzip);
+        assertThat(serializer.deserialize(serializer.serialize(jsonOnly))).isEqualTo(jsonOnly);
+    }
+
+    @Test
+    @DisplayName("Unknown format - JDK serialized or newer version values read as a cache miss")
+    void unknownFormat_isMiss() {
+        byte[] jdk = new JdkSerializationRedisSerializer().serialize(device);
+        byte[] newer = serializer.serialize(device);
+        newer[0] = DeviceCacheSerializer.FORMAT_VERSION + 1;
+
+        assertThat(serializer.deserialize(jdk)).isNull();
+        assertThat(serializer.deserialize(newer)).isNull();
+        assertThat(serializer.serialize(device)).hasSizeLessThan(jdk.length / 4);
+    }
+}
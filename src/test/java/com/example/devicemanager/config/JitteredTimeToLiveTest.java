@@ -0,0 +1,30 @@
+package com.example.devicemanager.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JitteredTimeToLiveTest {
+
+    @Test
+    @DisplayName("Time to live - spread within ±jitter across keys, stable for a key")
+    void timeToLive_spreadPerKey() {
+        JitteredTimeToLive ttl = new JitteredTimeToLive(Duration.ofMinutes(10), 0.1);
+
+        Set<Duration> seen = new HashSet<>();
+        for (long id = 1; id <= 1000; id++) {
+            Duration value = ttl.getTimeToLive(id, null);
+            assertThat(value).isBetween(Duration.ofMinutes(9), Duration.ofMinutes(11));
+            assertThat(ttl.getTimeToLive(id, "other value")).isEqualTo(value);
+            seen.add(value);
+        }
+
+        assertThat(seen).hasSizeGreaterThan(500);
+        assertThat(new JitteredTimeToLive(Duration.ofMinutes(10), 0).getTimeToLive(1L, null)).isEqualTo(Duration.ofMinutes(10));
+    }
+}
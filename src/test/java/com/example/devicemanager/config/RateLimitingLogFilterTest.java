@@ -0,0 +1,33 @@
+package com.example.devicemanager.config;
+
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitingLogFilterTest {
+
+    @Test
+    @DisplayName("Rate limit - at most maxPerSecond events pass per second, the next second starts over")
+    void decide_limitsPerSecond() {
+        RateLimitingLogFilter filter = new RateLimitingLogFilter();
+        filter.setMaxPerSecond(2);
+
+        assertThat(filter.decide(eventAt(10_000))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(eventAt(10_400))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(eventAt(10_900))).isEqualTo(FilterReply.DENY);
+        assertThat(filter.decide(eventAt(10_999))).isEqualTo(FilterReply.DENY);
+
+        assertThat(filter.decide(eventAt(11_000))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(eventAt(11_001))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(eventAt(11_002))).isEqualTo(FilterReply.DENY);
+    }
+
+    private static LoggingEvent eventAt(long timestamp) {
+        LoggingEvent event = new LoggingEvent();
+        event.setTimeStamp(timestamp);
+        return event;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.devicemanager.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private final DataSource replica2 = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replica1Connection = mock(Connection.class);
+    private final Connection replica2Connection = mock(Connection.class);
+
+    // Lag reported by each replica; a missing entry means the check fails
+    private final Map<DataSource, Long> lagSeconds = new HashMap<>();
+
+    private ReplicaLagMonitor monitor;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica1.getConnection()).thenReturn(replica1Connection);
+        when(replica2.getConnection()).thenReturn(replica2Connection);
+
+        monitor = new ReplicaLagMonitor(Map.of("replica-1", replica1, "replica-2", replica2),
+                Duration.ofSeconds(5), Duration.ofSeconds(5)) {
+            @Override
+            protected Long replicationLagSeconds(DataSource replica) {
+                if (!lagSeconds.containsKey(replica)) {
+                    throw new IllegalStateException("connection refused");
+                }
+                return lagSeconds.get(replica);
+            }
+        };
+        routing = new ReadWriteRoutingDataSource(primary, monitor);
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void clearReadOnlyFlag() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Routing - writes go to the primary, read-only transactions alternate between healthy replicas")
+    void readOnlyGoesToReplicas() throws SQLException {
+        lagSeconds.put(replica1, 0L);
+        lagSeconds.put(replica2, 1L);
+        monitor.checkReplicationLag();
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.getConnection()).isSameAs(replica1Connection);
+        assertThat(routing.getConnection()).isSameAs(replica2Connection);
+        assertThat(routing.getConnection()).isSameAs(replica1Connection);
+    }
+
+    @Test
+    @DisplayName("Routing - lagging, stopped or unreachable replicas are skipped, with the primary as last resort")
+    void unhealthyReplicasFallBackToPrimary() throws SQLException {
+        lagSeconds.put(replica1, 30L);
+        lagSeconds.put(replica2, 0L);
+        monitor.checkReplicationLag();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.getConnection()).isSameAs(replica2Connection);
+        assertThat(routing.getConnection()).isSameAs(replica2Connection);
+
+        lagSeconds.put(replica2, null);
+        monitor.checkReplicationLag();
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+
+        lagSeconds.clear();
+        monitor.checkReplicationLag();
+        assertThat(monitor.getHealthyReplicas()).isEmpty();
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.devicemanager.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwoLevelCacheTest {
+
+    private final ConcurrentMapCache shared = new ConcurrentMapCache("devices", false);
+
+    private final List<String> published = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TwoLevelCache cache = new TwoLevelCache("devices",
+            Caffeine.newBuilder().maximumSize(100).build(),
+            shared,
+            (cacheName, key) -> published.add(cacheName + ":" + key),
+            null,
+            meterRegistry);
+
+    @Test
+    @DisplayName("Get - L2 hits are copied into L1 and counted per tier")
+    void get_fillsLocalTier() {
+        shared.put(1L, "device");
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("device");
+        assertThat(cache.get(1L, String.class)).isEqualTo("device");
+        assertThat(cache.get(2L)).isNull();
+
+        assertThat(gets("l1", "hit")).isEqualTo(1);
+        assertThat(gets("l1", "miss")).isEqualTo(2);
+        assertThat(gets("l2", "hit")).isEqualTo(1);
+        assertThat(gets("l2", "miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.tier.hit.ratio").tag("tier", "l1").gauge().value()).isEqualTo(1.0 / 3);
+    }
+
+    @Test
+    @DisplayName("Writes - go to both tiers and are published; remote invalidation drops only L1")
+    void writes_publishInvalidations() {
+        cache.put(1L, "device");
+        assertThat(shared.get(1L).get()).isEqualTo("device");
+
+        shared.put(1L, "changed on another node");
+        cache.evictLocal("1");
+        assertThat(cache.get(1L).get()).isEqualTo("changed on another node");
+
+        cache.evict(1L);
+        cache.clear();
+
+        assertThat(shared.get(1L)).isNull();
+        assertThat(published).containsExactly("devices:1", "devices:1", "devices:null");
+    }
+
+    @Test
+    @DisplayName("Sync get - concurrent misses for one key share a single load")
+    void syncGet_coalescesConcurrentMisses() throws Exception {
+        int callers = 8;
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            loaderCalls.incrementAndGet();
+            release.await();
+            return "loaded";
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get(1L, loader)));
+            }
+            // Every other caller is parked on the leader's load before it is released
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalesced("local") < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loaderCalls).hasValue(1);
+        assertThat(shared.get(1L).get()).isEqualTo("loaded");
+        assertThat(meterRegistry.get("cache.loads").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sync get - while another node holds the load lock, its value is taken from L2")
+    void syncGet_waitsForRemoteLoad() {
+        TwoLevelCache.LoadLock heldElsewhere = new TwoLevelCache.LoadLock() {
+            @Override
+            public String tryLock(String cacheName, String key) {
+                return null;
+            }
+
+            @Override
+            public void unlock(String cacheName, String key, String token) {
+            }
+
+            @Override
+            public void await(String cacheName, String key, BooleanSupplier loaded) {
+                shared.put(1L, "loaded elsewhere");
+                loaded.getAsBoolean();
+            }
+        };
+        TwoLevelCache lockedCache = new TwoLevelCache("locked", Caffeine.newBuilder().build(), shared,
+                (cacheName, key) -> { }, heldElsewhere, meterRegistry);
+
+        String value = lockedCache.get(1L, () -> {
+            throw new IllegalStateException("must not load");
+        });
+
+        assertThat(value).isEqualTo("loaded elsewhere");
+        assertThat(meterRegistry.get("cache.loads.coalesced").tag("cache", "locked").tag("scope", "remote")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sync get - a hit within the refresh window returns the cached value and reloads it once through the refresh loader")
+    void syncGet_refreshesAhead() {
+        List<Runnable> reloads = new ArrayList<>();
+        TwoLevelCache refreshing = refreshingCache(reloads);
+        AtomicInteger version = new AtomicInteger();
+        refreshing.setRefreshLoader(key -> "v" + version.incrementAndGet());
+        Callable<String> loader = () -> {
+            throw new IllegalStateException("must not be replayed");
+        };
+        refreshing.put(1L, "v0");
+
+        assertThat(refreshing.get(1L, loader)).isEqualTo("v0");
+        assertThat(refreshing.get(1L, loader)).isEqualTo("v0");
+        assertThat(reloads).hasSize(1);
+
+        reloads.get(0).run();
+
+        assertThat(refreshing.get(1L, loader)).isEqualTo("v1");
+        assertThat(shared.get(1L).get()).isEqualTo("v1");
+        assertThat(meterRegistry.get("cache.refreshes").tag("cache", "refreshing").tag("result", "success")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sync get - a reload that overlaps a write to its key is not stored")
+    void syncGet_refreshLosesToConcurrentWrite() {
+        List<Runnable> reloads = new ArrayList<>();
+        TwoLevelCache refreshing = refreshingCache(reloads);
+        refreshing.put(1L, "v0");
+        refreshing.setRefreshLoader(key -> {
+            // The device is updated while the reload reads the old row
+            refreshing.put(1L, "v2");
+            return "v1";
+        });
+
+        refreshing.get(1L, () -> "loaded");
+        reloads.get(0).run();
+
+        assertThat(refreshing.get(1L, String.class)).isEqualTo("v2");
+        assertThat(shared.get(1L).get()).isEqualTo("v2");
+    }
+
+    @Test
+    @DisplayName("Sync get - without a refresh loader, due entries are served and not reloaded")
+    void syncGet_noRefreshLoader() {
+        List<Runnable> reloads = new ArrayList<>();
+        TwoLevelCache refreshing = refreshingCache(reloads);
+        refreshing.put(1L, "v0");
+
+        assertThat(refreshing.get(1L, () -> "loaded")).isEqualTo("v0");
+        assertThat(reloads).isEmpty();
+    }
+
+    private TwoLevelCache refreshingCache(List<Runnable> reloads) {
+        // A window longer than the time to live makes every entry due as soon as it is written
+        TwoLevelCache.RefreshAhead refreshAhead = new TwoLevelCache.RefreshAhead(Duration.ofMinutes(2),
+                new JitteredTimeToLive(Duration.ofMinutes(1), 0), reloads::add);
+        return new TwoLevelCache("refreshing", Caffeine.newBuilder().build(), shared,
+                (cacheName, key) -> { }, null, refreshAhead, null, meterRegistry);
+    }
+
+    private double coalesced(String scope) {
+        return meterRegistry.get("cache.loads.coalesced").tag("cache", "devices").tag("scope", scope).counter().count();
+    }
+
+    private double gets(String tier, String result) {
+        return meterRegistry.get("cache.tier.gets").tag("tier", tier).tag("result", result).counter().count();
+    }
+}
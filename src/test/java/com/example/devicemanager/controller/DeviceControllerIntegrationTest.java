@@ -1,8 +1,11 @@
 package com.example.devicemanager.controller;
 
 import com.example.devicemanager.model.State;
+import com.example.devicemanager.dto.BulkImportResultDTO;
 import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
 import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.StateChangeDTO;
 import com.example.devicemanager.repository.DeviceRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,11 +14,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.*;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class DeviceControllerIntegrationTest {
@@ -29,6 +39,9 @@ class DeviceControllerIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
     private String baseUrl;
 
     @BeforeEach
@@ -61,6 +74,25 @@ class DeviceControllerIntegrationTest {
         assertThat(creationInstant).isBeforeOrEqualTo(Instant.now());
     }
 
+    @Test
+    @DisplayName("GET /api/devices?ids= and POST /api/devices/lookup - Get several devices at once")
+    void getDevices_byIds() {
+        DeviceDTO first = restTemplate.postForObject(baseUrl,
+                CreateDeviceDTO.builder().name("Multi 1").brand("Brand M").state(State.AVAILABLE).build(), DeviceDTO.class);
+        DeviceDTO second = restTemplate.postForObject(baseUrl,
+                CreateDeviceDTO.builder().name("Multi 2").brand("Brand M").state(State.IN_USE).build(), DeviceDTO.class);
+
+        ResponseEntity<List<DeviceDTO>> byQuery = restTemplate.exchange(
+                baseUrl + "?ids=" + second.getId() + "," + first.getId() + ",999999999",
+                HttpMethod.GET, null, new ParameterizedTypeReference<>() { });
+        ResponseEntity<List<DeviceDTO>> byBody = restTemplate.exchange(baseUrl + "/lookup", HttpMethod.POST,
+                new HttpEntity<>(List.of(first.getId(), second.getId())), new ParameterizedTypeReference<>() { });
+
+        assertThat(byQuery.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(byQuery.getBody()).extracting(DeviceDTO::getName).containsExactly("Multi 2", "Multi 1");
+        assertThat(byBody.getBody()).extracting(DeviceDTO::getName).containsExactly("Multi 1", "Multi 2");
+    }
+
     @Test
     @DisplayName("GET /api/devices/{id} - Get device by id successfully")
     void getDevice_success() {
@@ -128,6 +160,111 @@ class DeviceControllerIntegrationTest {
         }
     }
 
+    @Test
+    @DisplayName("PATCH /api/devices/{id} - Merge patch changes only the fields it contains")
+    void patchDevice_mergePatch() {
+        CreateDeviceDTO createDTO = CreateDeviceDTO.builder()
+                .name("Device Patch")
+                .brand("Brand P")
+                .state(State.AVAILABLE)
+                .build();
+
+        DeviceDTO created = restTemplate.postForEntity(baseUrl, createDTO, DeviceDTO.class).getBody();
+        assertThat(created).isNotNull();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/merge-patch+json"));
+        HttpEntity<String> entity = new HttpEntity<>("{\"state\":\"INACTIVE\"}", headers);
+
+        ResponseEntity<DeviceDTO> response = restTemplate.exchange(
+                baseUrl + "/" + created.getId(),
+                HttpMethod.PATCH,
+                entity,
+                DeviceDTO.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DeviceDTO patched = response.getBody();
+        assertThat(patched).isNotNull();
+        assertThat(patched.getName()).isEqualTo("Device Patch");
+        assertThat(patched.getBrand()).isEqualTo("Brand P");
+        assertThat(patched.getState()).isEqualTo(State.INACTIVE);
+        assertThat(patched.getCreationTime()).isCloseTo(created.getCreationTime(), within(1, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("PUT/DELETE /api/devices/{id} - If-Match with a stale ETag returns 412")
+    void conditionalUpdateAndDelete_ifMatch() {
+        CreateDeviceDTO createDTO = CreateDeviceDTO.builder()
+                .name("Device Versioned")
+                .brand("Brand V")
+                .state(State.AVAILABLE)
+                .build();
+
+        ResponseEntity<DeviceDTO> created = restTemplate.postForEntity(baseUrl, createDTO, DeviceDTO.class);
+        String etag = created.getHeaders().getETag();
+        assertThat(etag).isEqualTo("\"0\"");
+        String url = baseUrl + "/" + created.getBody().getId();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setIfMatch(etag);
+        DeviceDTO updateDTO = DeviceDTO.builder().state(State.INACTIVE).build();
+
+        ResponseEntity<DeviceDTO> updated = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(updateDTO, headers), DeviceDTO.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(updated.getHeaders().getETag()).isEqualTo("\"1\"");
+        assertThat(updated.getBody().getVersion()).isEqualTo(1L);
+
+        // Same ETag again: the device has moved on
+        ResponseEntity<String> staleUpdate = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(updateDTO, headers), String.class);
+        assertThat(staleUpdate.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        ResponseEntity<String> staleDelete = restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
+        assertThat(staleDelete.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        headers.setIfMatch(updated.getHeaders().getETag());
+        ResponseEntity<Void> deleted = restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    @Test
+    @DisplayName("GET /api/devices/{id} and /brand/{brand} - If-None-Match with the current ETag returns 304 until a write")
+    void conditionalGet_ifNoneMatch() {
+        DeviceDTO device = restTemplate.postForObject(baseUrl,
+                CreateDeviceDTO.builder().name("Polled").brand("Brand P").state(State.AVAILABLE).build(), DeviceDTO.class);
+        String deviceUrl = baseUrl + "/" + device.getId();
+        String brandUrl = baseUrl + "/brand/Brand P";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"0\"");
+        ResponseEntity<String> notModified = restTemplate.exchange(deviceUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+
+        ResponseEntity<String> list = restTemplate.getForEntity(brandUrl, String.class);
+        String listETag = list.getHeaders().getETag();
+        assertThat(listETag).startsWith("\"list-");
+        headers.setIfNoneMatch(listETag);
+        ResponseEntity<String> listNotModified = restTemplate.exchange(brandUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(listNotModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(listNotModified.getBody()).isNull();
+
+        HttpHeaders stateChange = new HttpHeaders();
+        stateChange.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.exchange(deviceUrl + "/state", HttpMethod.PUT,
+                new HttpEntity<>(StateChangeDTO.builder().state(State.IN_USE).build(), stateChange), Void.class);
+
+        ResponseEntity<String> changed = restTemplate.exchange(brandUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(listETag);
+        assertThat(changed.getBody()).contains("IN_USE");
+
+        headers.setIfNoneMatch("\"0\"");
+        ResponseEntity<DeviceDTO> changedDevice = restTemplate.exchange(deviceUrl, HttpMethod.GET, new HttpEntity<>(headers), DeviceDTO.class);
+        assertThat(changedDevice.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changedDevice.getHeaders().getETag()).isEqualTo("\"1\"");
+    }
+
     @Test
     @DisplayName("PUT /api/devices/{id} - Update device not found returns 404")
     void updateDevice_notFound() {
@@ -204,6 +341,95 @@ class DeviceControllerIntegrationTest {
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).contains("\"size\":20");
+
+        // Sizes over the limit share the cached page of the limited size
+        restTemplate.getForEntity(baseUrl + "?page=0&size=1000", String.class);
+        String generation = redisTemplate.opsForValue().get("devices:list-generation");
+        assertThat(redisTemplate.keys("allDevices::" + generation + ":0:*"))
+                .containsExactly("allDevices::" + generation + ":0:20");
+    }
+
+    @Test
+    @DisplayName("GET /api/devices/cursor - Walk all pages with keyset pagination")
+    void listDevicesAfterCursor_walksAllPages() {
+        for (int i = 0; i < 25; i++) {
+            CreateDeviceDTO createDTO = CreateDeviceDTO.builder()
+                    .name("Device " + i)
+                    .brand("Brand " + (i % 3))
+                    .state(State.AVAILABLE)
+                    .build();
+            restTemplate.postForEntity(baseUrl, createDTO, DeviceDTO.class);
+        }
+
+        Set<Long> seen = new HashSet<>();
+        String url = baseUrl + "/cursor?size=10";
+        int pages = 0;
+        while (url != null) {
+            ResponseEntity<CursorPageDTO<DeviceDTO>> response = restTemplate.exchange(
+                    url, HttpMethod.GET, null, new ParameterizedTypeReference<>() {});
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+            CursorPageDTO<DeviceDTO> page = response.getBody();
+            assertThat(page).isNotNull();
+            page.getContent().forEach(dto -> assertThat(seen.add(dto.getId())).isTrue());
+            pages++;
+            url = page.isHasNext() ? baseUrl + "/cursor?size=10&after=" + page.getNextCursor() : null;
+        }
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(25);
+    }
+
+    @Test
+    @DisplayName("GET /api/devices/brand/{brand} - Stream as JSON array or NDJSON")
+    void getDevicesByBrand_streamed() {
+        for (int i = 0; i < 3; i++) {
+            CreateDeviceDTO createDTO = CreateDeviceDTO.builder()
+                    .name("Streamed " + i)
+                    .brand("StreamBrand")
+                    .state(State.AVAILABLE)
+                    .build();
+            restTemplate.postForEntity(baseUrl, createDTO, DeviceDTO.class);
+        }
+
+        ResponseEntity<DeviceDTO[]> array = restTemplate.getForEntity(baseUrl + "/brand/StreamBrand", DeviceDTO[].class);
+        assertThat(array.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(array.getBody()).hasSize(3);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        ResponseEntity<String> ndjson = restTemplate.exchange(
+                baseUrl + "/brand/StreamBrand", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(ndjson.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(ndjson.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(ndjson.getBody()).isNotNull();
+        assertThat(ndjson.getBody().lines()).hasSize(3).allMatch(line -> line.contains("\"brand\":\"StreamBrand\""));
+    }
+
+    @Test
+    @DisplayName("PUT /api/devices/{id}/state - Claiming a device already IN_USE returns 409")
+    void changeState_claimTwice() {
+        CreateDeviceDTO createDTO = CreateDeviceDTO.builder()
+                .name("Device Claim")
+                .brand("Brand C")
+                .state(State.AVAILABLE)
+                .build();
+
+        DeviceDTO created = restTemplate.postForEntity(baseUrl, createDTO, DeviceDTO.class).getBody();
+        assertThat(created).isNotNull();
+        String url = baseUrl + "/" + created.getId() + "/state";
+        HttpEntity<StateChangeDTO> claim = new HttpEntity<>(new StateChangeDTO(State.IN_USE));
+
+        ResponseEntity<Void> first = restTemplate.exchange(url, HttpMethod.PUT, claim, Void.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        ResponseEntity<String> second = restTemplate.exchange(url, HttpMethod.PUT, claim, String.class);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(second.getBody()).contains("Device is already in use");
+
+        DeviceDTO fetched = restTemplate.getForEntity(baseUrl + "/" + created.getId(), DeviceDTO.class).getBody();
+        assertThat(fetched.getState()).isEqualTo(State.IN_USE);
+        assertThat(fetched.getVersion()).isEqualTo(1L);
     }
 
     @Test
@@ -217,6 +443,8 @@ class DeviceControllerIntegrationTest {
 
         DeviceDTO created = restTemplate.postForEntity(baseUrl, createDTO, DeviceDTO.class).getBody();
         assertThat(created).isNotNull();
+        // Cache the list page that contains the device
+        assertThat(restTemplate.getForObject(baseUrl, String.class)).contains("Device To Delete");
 
         ResponseEntity<Void> response = restTemplate.exchange(
                 baseUrl + "/" + created.getId(),
@@ -226,6 +454,7 @@ class DeviceControllerIntegrationTest {
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
         assertThat(deviceRepository.existsById(created.getId())).isFalse();
+        assertThat(restTemplate.getForObject(baseUrl, String.class)).doesNotContain("Device To Delete");
     }
 
     @Test
@@ -262,4 +491,25 @@ class DeviceControllerIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
         assertThat(response.getBody()).contains("Device not found");
     }
+
+    @Test
+    @DisplayName("POST /api/devices/bulk (NDJSON) - a row the database rejects fails only its line")
+    void importNdjson_rowRejectedByDatabase() {
+        String ndjson = """
+                {"name":"i1","brand":"Brand Import","state":"AVAILABLE"}
+                {"name":"%s","brand":"Brand Import","state":"AVAILABLE"}
+                {"name":"i3","brand":"Brand Import","state":"INACTIVE"}
+                """.formatted("x".repeat(300));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+
+        BulkImportResultDTO result = restTemplate.postForObject(baseUrl + "/bulk", new HttpEntity<>(ndjson, headers),
+                BulkImportResultDTO.class);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(2L);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("Rejected by database");
+        assertThat(deviceRepository.findByBrand("Brand Import")).extracting(DeviceDTO::getName)
+                .containsExactlyInAnyOrder("i1", "i3");
+    }
 }
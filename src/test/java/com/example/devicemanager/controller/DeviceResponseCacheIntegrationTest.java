@@ -0,0 +1,120 @@
+package com.example.devicemanager.controller;
+
+import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "device.cache.serialized-responses=true")
+class DeviceResponseCacheIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Leaves Content-Encoding and the compressed body as the server sent them
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private String baseUrl;
+
+    @BeforeEach
+    void setup() {
+        baseUrl = "http://localhost:" + port + "/api/devices";
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("GET /api/devices/{id} - cached JSON and gzip bytes, ETag and 304, evicted by writes")
+    void getDevice_serializedResponses() throws Exception {
+        String name = "Serialized device ".repeat(10);
+        DeviceDTO created = restTemplate.postForObject(baseUrl,
+                CreateDeviceDTO.builder().name(name).brand("Brand S").state(State.AVAILABLE).build(), DeviceDTO.class);
+        String url = baseUrl + "/" + created.getId();
+
+        HttpResponse<byte[]> plain = get(url, null, null);
+        assertThat(plain.statusCode()).isEqualTo(200);
+        assertThat(plain.headers().firstValue(HttpHeaders.ETAG)).hasValue("\"0\"");
+        assertThat(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(plain.headers().firstValue(HttpHeaders.VARY)).hasValueSatisfying(vary ->
+                assertThat(vary).contains(HttpHeaders.ACCEPT_ENCODING));
+        assertThat(objectMapper.readValue(plain.body(), DeviceDTO.class))
+                .usingRecursiveComparison().isEqualTo(created);
+
+        HttpResponse<byte[]> gzip = get(url, "gzip, deflate", null);
+        assertThat(gzip.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(gunzip(gzip.body())).isEqualTo(plain.body());
+        assertThat(gzip.body().length).isLessThan(plain.body().length);
+        assertThat(gzip.headers().firstValue(HttpHeaders.ETAG)).hasValue("\"0-gz\"");
+        assertThat(gzip.headers().firstValue(HttpHeaders.VARY)).hasValueSatisfying(vary ->
+                assertThat(vary).contains(HttpHeaders.ACCEPT_ENCODING));
+
+        assertThat(get(url, null, "\"0\"").statusCode()).isEqualTo(304);
+        assertThat(get(url, "gzip", "\"0-gz\"").statusCode()).isEqualTo(304);
+        // Each representation only validates against its own ETag
+        assertThat(get(url, "gzip", "\"0\"").statusCode()).isEqualTo(200);
+        assertThat(get(url, null, "\"0-gz\"").statusCode()).isEqualTo(200);
+
+        // The gzip ETag is still the device version for If-Match
+        HttpHeaders ifMatch = new HttpHeaders();
+        ifMatch.setIfMatch("\"0-gz\"");
+        assertThat(restTemplate.exchange(url + "/state", HttpMethod.PUT,
+                new HttpEntity<>(Map.of("state", "IN_USE"), ifMatch), Void.class).getStatusCode().is2xxSuccessful()).isTrue();
+        HttpResponse<byte[]> changed = get(url, null, "\"0\"");
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readValue(changed.body(), DeviceDTO.class).getState()).isEqualTo(State.IN_USE);
+
+        restTemplate.put(url + "/state", Map.of("state", "AVAILABLE"));
+        restTemplate.delete(url);
+        HttpResponse<byte[]> deleted = get(url, "gzip", null);
+        assertThat(deleted.statusCode()).isEqualTo(404);
+    }
+
+    private HttpResponse<byte[]> get(String url, String acceptEncoding, String ifNoneMatch)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.devicemanager.controller;
+
+import com.example.devicemanager.dto.BulkImportResultDTO;
+import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.dto.StateChangeDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.DeviceRepository;
+import com.example.devicemanager.repository.ReactiveDeviceRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+class ReactiveDeviceControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private HikariDataSource jdbcPool;
+
+    @Autowired
+    private ReactiveDeviceRepository reactiveDeviceRepository;
+
+    @BeforeEach
+    void setup() {
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Reactive stack - the JDBC pool is shrunk to the background jobs' size")
+    void jdbcPool_shrunk() {
+        assertThat(jdbcPool.getMaximumPoolSize()).isEqualTo(2);
+        assertThat(jdbcPool.getMinimumIdle()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Reactive stack - create, get with ETag and 304 on If-None-Match")
+    void createAndGet_conditional() {
+        DeviceDTO created = create("Reactive 1", "Brand R", State.AVAILABLE);
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getVersion()).isZero();
+        assertThat(created.getCreationTime()).isNotNull();
+
+        String etag = webTestClient.get().uri("/api/devices/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DeviceDTO.class).value(device -> assertThat(device.getName()).isEqualTo("Reactive 1"))
+                .returnResult().getResponseHeaders().getETag();
+        assertThat(etag).isEqualTo("\"0\"");
+
+        webTestClient.get().uri("/api/devices/{id}", created.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.get().uri("/api/devices/{id}", 999_999_999L)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Device not found");
+    }
+
+    @Test
+    @DisplayName("Reactive stack - conditional update bumps the version; a stale If-Match gets 412")
+    void update_ifMatch() {
+        DeviceDTO created = create("Before", "Brand R", State.AVAILABLE);
+        DeviceDTO patch = DeviceDTO.builder().name("After").build();
+
+        webTestClient.patch().uri("/api/devices/{id}", created.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody(DeviceDTO.class).value(device -> assertThat(device.getName()).isEqualTo("After"));
+
+        webTestClient.patch().uri("/api/devices/{id}", created.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // The write evicted the cached copy filled by the first read
+        webTestClient.get().uri("/api/devices/{id}", created.getId())
+                .exchange()
+                .expectBody(DeviceDTO.class).value(device -> assertThat(device.getVersion()).isEqualTo(1L));
+    }
+
+    @Test
+    @DisplayName("Reactive stack - deleting a device in use is rejected, an available one is deleted")
+    void delete_inUseAndAvailable() {
+        DeviceDTO device = create("To delete", "Brand R", State.AVAILABLE);
+        setState(device.getId(), State.IN_USE).expectStatus().isNoContent();
+        setState(device.getId(), State.IN_USE).expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        webTestClient.delete().uri("/api/devices/{id}", device.getId())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        setState(device.getId(), State.AVAILABLE).expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/devices/{id}", device.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/devices/{id}", device.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Reactive stack - cursor pages walk all devices; an unchanged list answers 304")
+    void cursorPages() {
+        webTestClient.post().uri("/api/devices/bulk")
+                .bodyValue(List.of(
+                        DeviceDTO.builder().name("C1").brand("Brand C").state(State.AVAILABLE).build(),
+                        DeviceDTO.builder().name("C2").brand("Brand C").state(State.AVAILABLE).build(),
+                        DeviceDTO.builder().name("C3").brand("Brand C").state(State.INACTIVE).build()))
+                .exchange()
+                .expectStatus().isOk();
+
+        var firstPage = webTestClient.get().uri("/api/devices/cursor?size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPageDTO<DeviceDTO>>() { })
+                .returnResult();
+        CursorPageDTO<DeviceDTO> first = firstPage.getResponseBody();
+        assertThat(first.getContent()).extracting(DeviceDTO::getName).containsExactly("C1", "C2");
+        assertThat(first.isHasNext()).isTrue();
+
+        CursorPageDTO<DeviceDTO> second = webTestClient.get().uri("/api/devices/cursor?size=2&after=" + first.getNextCursor())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPageDTO<DeviceDTO>>() { })
+                .returnResult().getResponseBody();
+        assertThat(second.getContent()).extracting(DeviceDTO::getName).containsExactly("C3");
+        assertThat(second.isHasNext()).isFalse();
+
+        String etag = firstPage.getResponseHeaders().getETag();
+        assertThat(etag).startsWith("\"list-");
+        webTestClient.get().uri("/api/devices/cursor?size=2")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    @DisplayName("Reactive stack - devices by brand as NDJSON and as a JSON array")
+    void byBrand_ndjsonAndJson() {
+        create("B1", "Brand N", State.AVAILABLE);
+        create("B2", "Brand N", State.IN_USE);
+
+        List<DeviceDTO> ndjson = webTestClient.get().uri("/api/devices/brand/{brand}", "Brand N")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .returnResult(DeviceDTO.class).getResponseBody().collectList().block();
+        assertThat(ndjson).extracting(DeviceDTO::getName).containsExactlyInAnyOrder("B1", "B2");
+
+        webTestClient.get().uri("/api/devices/state/{state}", State.IN_USE)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(DeviceDTO.class).value(devices ->
+                        assertThat(devices).extracting(DeviceDTO::getName).containsExactly("B2"));
+    }
+
+    @Test
+    @DisplayName("Reactive stack - invalid payloads get the same 400 body as the servlet stack")
+    void validationErrors() {
+        webTestClient.post().uri("/api/devices")
+                .bodyValue(CreateDeviceDTO.builder().name("").brand("Brand V").state(State.AVAILABLE).build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(new ParameterizedTypeReference<Map<String, Object>>() { })
+                .value(body -> {
+                    assertThat(body).containsKeys("timestamp", "status", "error", "message");
+                    assertThat(body.get("message").toString()).startsWith("name:");
+                });
+
+        webTestClient.get().uri("/api/devices/state/{state}", "BROKEN")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Invalid parameter: state");
+    }
+
+    @Test
+    @DisplayName("Reactive stack - NDJSON import stores valid lines and reports invalid ones")
+    void importNdjson() {
+        String ndjson = """
+                {"name":"i1","brand":"Brand I","state":"AVAILABLE"}
+                {"name":"","brand":"Brand I","state":"AVAILABLE"}
+
+                {"name":"i3","brand":"Brand I","state":"INACTIVE"}
+                """;
+
+        BulkImportResultDTO result = webTestClient.post().uri("/api/devices/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BulkImportResultDTO.class)
+                .returnResult().getResponseBody();
+
+        assertThat(result.getReceived()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(2L);
+        assertThat(deviceRepository.findByBrand("Brand I")).extracting(DeviceDTO::getName)
+                .containsExactlyInAnyOrder("i1", "i3");
+    }
+
+    @Test
+    @DisplayName("Reactive stack - a row the database rejects fails only its line of the import")
+    void importNdjson_rowRejectedByDatabase() {
+        String ndjson = """
+                {"name":"i1","brand":"Brand R","state":"AVAILABLE"}
+                {"name":"%s","brand":"Brand R","state":"AVAILABLE"}
+                {"name":"i3","brand":"Brand R","state":"INACTIVE"}
+                """.formatted("x".repeat(300));
+
+        BulkImportResultDTO result = webTestClient.post().uri("/api/devices/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BulkImportResultDTO.class)
+                .returnResult().getResponseBody();
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(2L);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("Rejected by database");
+        assertThat(deviceRepository.findByBrand("Brand R")).extracting(DeviceDTO::getName)
+                .containsExactlyInAnyOrder("i1", "i3");
+    }
+
+    @Test
+    @DisplayName("Reactive stack - inserts spanning several id blocks never hand out an id twice")
+    void insertAll_distinctIdsAcrossBlocks() {
+        List<DeviceDTO> first = reactiveDeviceRepository.insertAll(devices("a", 120)).block();
+        List<DeviceDTO> second = reactiveDeviceRepository.insertAll(devices("b", 120)).block();
+
+        List<Long> ids = Stream.concat(first.stream(), second.stream()).map(DeviceDTO::getId).toList();
+        assertThat(ids).hasSize(240).doesNotHaveDuplicates();
+        assertThat(deviceRepository.count()).isEqualTo(240);
+    }
+
+    private static List<Device> devices(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Device.builder().name(prefix + i).brand("Brand S").state(State.AVAILABLE)
+                        .creationTime(Instant.now()).build())
+                .toList();
+    }
+
+    private DeviceDTO create(String name, String brand, State state) {
+        return webTestClient.post().uri("/api/devices")
+                .bodyValue(CreateDeviceDTO.builder().name(name).brand(brand).state(state).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DeviceDTO.class)
+                .returnResult().getResponseBody();
+    }
+
+    private WebTestClient.ResponseSpec setState(Long id, State state) {
+        return webTestClient.put().uri("/api/devices/{id}/state", id)
+                .bodyValue(new StateChangeDTO(state))
+                .exchange();
+    }
+}
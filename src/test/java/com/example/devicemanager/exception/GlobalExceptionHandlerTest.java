@@ -0,0 +1,91 @@
+package com.example.devicemanager.exception;
+
+import com.example.devicemanager.dto.ErrorResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(meterRegistry);
+
+    @Test
+    @DisplayName("Domain exceptions - no stack trace is captured")
+    void apiException_isStackless() {
+        DeviceNotFoundException ex = new DeviceNotFoundException("Device not found");
+
+        assertThat(ex.getStackTrace()).isEmpty();
+        assertThat(ex.getMessage()).isEqualTo("Device not found");
+    }
+
+    @Test
+    @DisplayName("Error response - status, reason and message in an immutable body; errors counted per type")
+    void handleApiException_bodyAndCounter() {
+        handler.handleApiException(new DeviceNotFoundException("Device not found"));
+        ResponseEntity<Object> response = handler.handleApiException(new DeviceNotFoundException("Device not found"));
+        handler.handleApiException(new DeviceInUseException("Cannot delete device that is in use"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        ErrorResponseDTO body = (ErrorResponseDTO) response.getBody();
+        assertThat(body.getStatus()).isEqualTo(404);
+        assertThat(body.getError()).isEqualTo("Not Found");
+        assertThat(body.getMessage()).isEqualTo("Device not found");
+        assertThat(body.getTimestamp()).isNotNull();
+
+        assertThat(meterRegistry.get("api.errors")
+                .tag("exception", "DeviceNotFoundException").tag("status", "404").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("api.errors")
+                .tag("exception", "DeviceInUseException").tag("status", "409").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Database unavailable - only an exhausted connection pool is answered with 503 and Retry-After")
+    void handleDatabaseUnavailable_onlyPoolExhaustion() {
+        CannotCreateTransactionException poolExhausted = new CannotCreateTransactionException("Could not open JPA EntityManager",
+                new SQLTransientConnectionException("primary - Connection is not available, request timed out after 2000ms"));
+
+        ResponseEntity<Object> busy = handler.handleDatabaseUnavailable(poolExhausted);
+        ResponseEntity<Object> redisDown = handler.handleDatabaseUnavailable(new RedisConnectionFailureException("Unable to connect to Redis"));
+        ResponseEntity<Object> databaseDown = handler.handleDatabaseUnavailable(
+                new DataAccessResourceFailureException("Communications link failure"));
+
+        assertThat(busy.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(busy.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(redisDown.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(databaseDown.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    @DisplayName("Spring exceptions - answered with their own status and headers rather than a 500")
+    void handleOtherExceptions_keepsSpringStatus() {
+        ResponseEntity<Object> notFound = handler.handleOtherExceptions(
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "No such route"));
+        ResponseEntity<Object> unsupported = handler.handleOtherExceptions(
+                new HttpMediaTypeNotSupportedException(MediaType.TEXT_PLAIN, List.of(MediaType.APPLICATION_JSON)));
+        ResponseEntity<Object> failure = handler.handleOtherExceptions(new IllegalStateException("boom"));
+
+        assertThat(notFound.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(((ErrorResponseDTO) notFound.getBody()).getMessage()).isEqualTo("No such route");
+        assertThat(unsupported.getStatusCode()).isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        assertThat(unsupported.getHeaders().getAccept()).containsExactly(MediaType.APPLICATION_JSON);
+        assertThat(failure.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(meterRegistry.get("api.errors")
+                .tag("exception", "ResponseStatusException").tag("status", "404").counter().count()).isEqualTo(1);
+    }
+}
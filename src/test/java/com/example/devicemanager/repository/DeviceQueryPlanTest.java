@@ -0,0 +1,200 @@
+package com.example.devicemanager.repository;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the SQL Hibernate generates for the hot repository queries, against an embedded
+ * MariaDB migrated by Flyway, and fails when one of them stops using an index.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.devicemanager.repository.DeviceQueryPlanTest$CapturedSql"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DeviceQueryPlanTest {
+
+    private static final int ROWS = 5_000;
+    private static final int BRANDS = 100;
+
+    private static DB embeddedDb;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void embeddedMariaDb(DynamicPropertyRegistry registry) throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder().setPort(0);
+        if ("root".equals(System.getProperty("user.name"))) {
+            // mariadbd refuses to start as root (e.g. in CI containers) unless told to
+            config.addArg("--user=root");
+        }
+        embeddedDb = DB.newEmbeddedDB(config.build());
+        embeddedDb.start();
+        embeddedDb.createDB("device_api");
+
+        int port = embeddedDb.getConfiguration().getPort();
+        registry.add("spring.datasource.url", () -> "jdbc:mysql://localhost:" + port + "/device_api");
+        registry.add("spring.datasource.username", () -> "root");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @BeforeAll
+    void seed() {
+        // Skewed states so that IN_USE is selective enough for an index to be the right plan
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO devices (id, name, brand, state, creation_time) VALUES (?, ?, ?, ?, ?)",
+                IntStream.rangeClosed(1, ROWS)
+                        .mapToObj(i -> new Object[]{
+                                i,
+                                "Device " + i,
+                                "Brand " + (i % BRANDS),
+                                i % 50 == 0 ? State.IN_USE.name() : i % 10 == 0 ? State.INACTIVE.name() : State.AVAILABLE.name(),
+                                Timestamp.from(start.plusSeconds(i))})
+                        .toList());
+        jdbcTemplate.execute("ANALYZE TABLE devices");
+    }
+
+    @AfterAll
+    void stopEmbeddedDb() throws Exception {
+        if (embeddedDb != null) {
+            embeddedDb.stop();
+        }
+    }
+
+    @BeforeEach
+    void resetCapture() {
+        CapturedSql.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("findById uses the primary key")
+    void findById() {
+        deviceRepository.findById(42L);
+
+        assertUsesIndex(lastSelect(), 42L);
+    }
+
+    @Test
+    @DisplayName("streamByBrand (brand export) uses idx_devices_brand")
+    void streamByBrand() {
+        try (Stream<DeviceDTO> devices = deviceRepository.streamByBrand("Brand 7")) {
+            devices.forEach(device -> { });
+        }
+
+        assertUsesIndex(lastSelect(), "Brand 7");
+    }
+
+    @Test
+    @DisplayName("streamByState (state export) uses idx_devices_state_brand")
+    void streamByState() {
+        try (Stream<DeviceDTO> devices = deviceRepository.streamByState(State.IN_USE)) {
+            devices.forEach(device -> { });
+        }
+
+        assertUsesIndex(lastSelect(), State.IN_USE.name());
+    }
+
+    @Test
+    @DisplayName("findAllDtos reads the page without sorting, and counts on an index")
+    void findAllDtos() {
+        deviceRepository.findAllDtos(PageRequest.of(2, 20));
+
+        List<String> selects = selects();
+        assertThat(selects).hasSize(2);
+        assertReadsWithoutSorting(selects.get(0), 40, 20);
+        assertUsesIndex(selects.get(1));
+    }
+
+    @Test
+    @DisplayName("Keyset first page reads idx_devices_creation_time in order")
+    void findFirstPage() {
+        deviceRepository.findFirstPage(PageRequest.of(0, 11));
+
+        assertUsesIndex(lastSelect(), 11);
+    }
+
+    @Test
+    @DisplayName("Keyset next page seeks on idx_devices_creation_time")
+    void findPageAfter() {
+        Timestamp creationTime = Timestamp.from(Instant.parse("2025-01-01T01:00:00Z"));
+        deviceRepository.findPageAfter(creationTime.toInstant(), 3600L, PageRequest.of(0, 11));
+
+        assertUsesIndex(lastSelect(), creationTime, creationTime, 3600L, 11);
+    }
+
+    private String lastSelect() {
+        List<String> selects = selects();
+        if (selects.isEmpty()) {
+            throw new AssertionError("No SELECT captured");
+        }
+        return selects.get(selects.size() - 1);
+    }
+
+    private List<String> selects() {
+        return CapturedSql.STATEMENTS.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select"))
+                .toList();
+    }
+
+    // An unordered page is a table scan that stops at the limit: fine as long as nothing is sorted first
+    private void assertReadsWithoutSorting(String sql, Object... parameters) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+
+        assertThat(plan).as("EXPLAIN %s", sql).hasSize(1);
+        assertThat(String.valueOf(plan.get(0).get("Extra"))).as("extra for %s%nplan: %s", sql, plan)
+                .doesNotContain("filesort", "temporary");
+    }
+
+    private void assertUsesIndex(String sql, Object... parameters) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+
+        assertThat(plan).as("EXPLAIN %s", sql).isNotEmpty();
+        for (Map<String, Object> row : plan) {
+            assertThat(row.get("type")).as("access type for %s%nplan: %s", sql, plan).isNotEqualTo("ALL");
+            assertThat(row.get("key")).as("index for %s%nplan: %s", sql, plan).isNotNull();
+        }
+    }
+
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
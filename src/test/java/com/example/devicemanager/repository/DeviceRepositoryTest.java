@@ -1,15 +1,20 @@
 package com.example.devicemanager.repository;
 
+import com.example.devicemanager.dto.DeviceDTO;
 import com.example.devicemanager.model.Device;
 import com.example.devicemanager.model.State;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -59,7 +64,7 @@ class DeviceRepositoryTest {
 
         deviceRepository.saveAll(List.of(d1, d2, d3));
 
-        List<Device> brandADevices = deviceRepository.findByBrand("BrandA");
+        List<DeviceDTO> brandADevices = deviceRepository.findByBrand("BrandA");
         assertThat(brandADevices).hasSize(2);
         assertThat(brandADevices).allMatch(d -> d.getBrand().equals("BrandA"));
     }
@@ -72,11 +77,63 @@ class DeviceRepositoryTest {
 
         deviceRepository.saveAll(List.of(d1, d2, d3));
 
-        List<Device> inUseDevices = deviceRepository.findByState(State.IN_USE);
+        List<DeviceDTO> inUseDevices = deviceRepository.findByState(State.IN_USE);
         assertThat(inUseDevices).hasSize(1);
         assertThat(inUseDevices.get(0).getState()).isEqualTo(State.IN_USE);
     }
 
+    @Test
+    void findDtoProjections() {
+        Device saved = deviceRepository.save(Device.builder().name("P1").brand("BrandP").state(State.AVAILABLE).creationTime(Instant.now()).build());
+        deviceRepository.save(Device.builder().name("P2").brand("BrandP").state(State.INACTIVE).creationTime(Instant.now()).build());
+
+        DeviceDTO dto = deviceRepository.findDtoById(saved.getId()).orElseThrow();
+        assertThat(dto.getName()).isEqualTo("P1");
+        assertThat(dto.getBrand()).isEqualTo("BrandP");
+        assertThat(dto.getState()).isEqualTo(State.AVAILABLE);
+        assertThat(dto.getCreationTime()).isNotNull();
+        assertThat(dto.getVersion()).isZero();
+
+        Page<DeviceDTO> page = deviceRepository.findAllDtos(PageRequest.of(0, 1));
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(deviceRepository.count());
+    }
+
+    @Test
+    @Transactional
+    void streamByBrand() {
+        Device d1 = Device.builder().name("D1").brand("BrandS").state(State.AVAILABLE).creationTime(Instant.now()).build();
+        Device d2 = Device.builder().name("D2").brand("BrandS").state(State.IN_USE).creationTime(Instant.now()).build();
+        Device d3 = Device.builder().name("D3").brand("BrandT").state(State.INACTIVE).creationTime(Instant.now()).build();
+
+        deviceRepository.saveAll(List.of(d1, d2, d3));
+
+        try (Stream<DeviceDTO> devices = deviceRepository.streamByBrand("BrandS")) {
+            assertThat(devices.map(DeviceDTO::getName)).containsExactlyInAnyOrder("D1", "D2");
+        }
+    }
+
+    @Test
+    @Transactional
+    void guardedDeleteAndStateChange() {
+        Device inUse = deviceRepository.save(Device.builder().name("Busy").brand("BrandG").state(State.IN_USE).creationTime(Instant.now()).build());
+        Device available = deviceRepository.save(Device.builder().name("Free").brand("BrandG").state(State.AVAILABLE).creationTime(Instant.now()).build());
+
+        assertThat(deviceRepository.deleteIfNotInUse(inUse.getId(), null)).isZero();
+        assertThat(deviceRepository.updateStateIfChanged(inUse.getId(), State.IN_USE, null)).isZero();
+        assertThat(deviceRepository.updateStateIfChanged(available.getId(), State.IN_USE, 1L)).isZero();
+
+        assertThat(deviceRepository.updateStateIfChanged(available.getId(), State.INACTIVE, 0L)).isEqualTo(1);
+        Device changed = deviceRepository.findById(available.getId()).orElseThrow();
+        assertThat(changed.getState()).isEqualTo(State.INACTIVE);
+        assertThat(changed.getVersion()).isEqualTo(1L);
+
+        assertThat(deviceRepository.deleteIfNotInUse(available.getId(), 0L)).isZero();
+        assertThat(deviceRepository.deleteIfNotInUse(available.getId(), 1L)).isEqualTo(1);
+        assertThat(deviceRepository.existsById(available.getId())).isFalse();
+        assertThat(deviceRepository.existsById(inUse.getId())).isTrue();
+    }
+
     @Test
     void deleteById() {
         Device device = Device.builder()
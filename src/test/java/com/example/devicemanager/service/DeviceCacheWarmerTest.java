@@ -0,0 +1,75 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.DeviceCacheProperties;
+import com.example.devicemanager.config.TwoLevelCache;
+import com.example.devicemanager.config.TwoLevelCacheManager;
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.DeviceRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.boot.actuate.health.Status;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class DeviceCacheWarmerTest {
+
+    @Mock
+    private DeviceService deviceService;
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private DeviceAccessTracker deviceAccessTracker;
+
+    @Mock
+    private DeviceListGeneration deviceListGeneration;
+
+    @Mock
+    private TwoLevelCacheManager cacheManager;
+
+    private final DeviceCacheProperties properties = new DeviceCacheProperties();
+
+    private final ConcurrentMapCache shared = new ConcurrentMapCache("devices", false);
+
+    private final TwoLevelCache devices = new TwoLevelCache("devices", Caffeine.newBuilder().build(), shared,
+            (cacheName, key) -> { }, null, new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Warm-up - loads uncached hot devices and the first list pages, holding readiness until done")
+    void warmUp_preloadsHotDevicesAndListPages() throws Exception {
+        properties.getWarmUp().setListPages(2);
+        DeviceCacheWarmer warmer = new DeviceCacheWarmer(deviceService, deviceRepository, deviceAccessTracker,
+                deviceListGeneration, cacheManager, properties, new MockEnvironment());
+        DeviceDTO first = DeviceDTO.builder().id(1L).name("device1").brand("brand1").state(State.AVAILABLE).build();
+        DeviceDTO third = DeviceDTO.builder().id(3L).name("device3").brand("brand1").state(State.IN_USE).build();
+        shared.put(2L, DeviceDTO.builder().id(2L).build());
+        when(cacheManager.getCache("devices")).thenReturn(devices);
+        when(deviceAccessTracker.hottest(1000)).thenReturn(List.of(1L, 2L, 3L));
+        when(deviceRepository.findDtosByIdIn(List.of(1L, 3L))).thenReturn(List.of(first, third));
+
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmer.start().get(5, TimeUnit.SECONDS);
+
+        assertThat(shared.get(1L).get()).isEqualTo(first);
+        assertThat(shared.get(3L).get()).isEqualTo(third);
+        verify(deviceService).listDevices(PageRequest.of(0, 10));
+        verify(deviceService).listDevices(PageRequest.of(1, 10));
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.UP);
+    }
+}
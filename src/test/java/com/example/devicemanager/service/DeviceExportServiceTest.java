@@ -0,0 +1,63 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.State;
+import com.example.devicemanager.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceExportServiceTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    private DeviceExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new DeviceExportService(deviceRepository, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    @DisplayName("Export by brand - JSON array format")
+    void writeDevicesByBrand_jsonArray() throws Exception {
+        when(deviceRepository.streamByBrand("b")).thenReturn(Stream.of(device(1L), device(2L)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeDevicesByBrand("b", DeviceExportService.Format.JSON_ARRAY, out);
+
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertThat(json).startsWith("[{\"id\":1,").endsWith("}]").contains("},{\"id\":2,");
+    }
+
+    @Test
+    @DisplayName("Export by state - NDJSON format, one device per line")
+    void writeDevicesByState_ndjson() throws Exception {
+        when(deviceRepository.streamByState(State.IN_USE)).thenReturn(Stream.of(device(1L), device(2L), device(3L)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeDevicesByState(State.IN_USE, DeviceExportService.Format.NDJSON, out);
+
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertThat(ndjson.lines()).hasSize(3).allMatch(line -> line.startsWith("{\"id\":") && line.endsWith("}"));
+        assertThat(ndjson).endsWith("\n");
+    }
+
+    private static DeviceDTO device(Long id) {
+        return DeviceDTO.builder().id(id).name("d" + id).brand("b").state(State.IN_USE).build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.CacheCircuitBreaker;
+import com.example.devicemanager.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceIdFilterTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CacheCircuitBreaker breaker;
+
+    private DeviceIdFilter filter;
+
+    private Runnable onClose;
+
+    @BeforeEach
+    void setUp() {
+        filter = new DeviceIdFilter(redisTemplate, deviceRepository, transactionManager, new SimpleMeterRegistry(), breaker);
+        ReflectionTestUtils.setField(filter, "expectedDevices", 1000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(filter, "missingTtl", Duration.ofSeconds(30));
+        filter.init();
+        ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+        verify(breaker).onClose(listener.capture());
+        onClose = listener.getValue();
+    }
+
+    @Test
+    @DisplayName("Record created - ids whose bits could not be set are added when the breaker closes")
+    @SuppressWarnings("unchecked")
+    void recordCreated_failedIdsAddedOnClose() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("Connection reset"))
+                .thenReturn(List.of());
+
+        filter.recordCreated(List.of(42L));
+        onClose.run();
+
+        ArgumentCaptor<RedisCallback<Object>> pipelines = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate, times(2)).executePipelined(pipelines.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        pipelines.getAllValues().get(1).doInRedis(connection);
+        verify(stringCommands, atLeastOnce()).setBit(any(byte[].class), anyLong(), eq(true));
+
+        // Nothing left to add
+        onClose.run();
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @DisplayName("Is known missing - an id whose bits are still missing is never rejected")
+    @SuppressWarnings("unchecked")
+    void isKnownMissing_unrecordedIdLetThrough() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("Connection reset"));
+        when(breaker.isClosed()).thenReturn(true);
+
+        filter.recordCreated(List.of(42L));
+
+        assertThat(filter.isKnownMissing(42L)).isFalse();
+        // Retried the add, but never read the filter
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+        verify(breaker, never()).execute(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Record created - past the pending limit, the filter is reset for a rebuild when Redis is back")
+    @SuppressWarnings("unchecked")
+    void recordCreated_tooManyFailedIdsResetFilter() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("Connection reset"));
+
+        filter.recordCreated(LongStream.rangeClosed(1, DeviceIdFilter.MAX_UNRECORDED + 1).boxed().toList());
+        onClose.run();
+
+        verify(redisTemplate).execute(any(RedisCallback.class));
+        onClose.run();
+        verify(redisTemplate).execute(any(RedisCallback.class));
+    }
+}
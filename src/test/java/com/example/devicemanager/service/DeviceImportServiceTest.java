@@ -0,0 +1,153 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.BulkImportResultDTO;
+import com.example.devicemanager.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceImportServiceTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private DeviceListGeneration deviceListGeneration;
+
+    @Mock
+    private DeviceIdFilter deviceIdFilter;
+
+    private DeviceImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new DeviceImportService(
+                deviceRepository,
+                new DeviceMapper(),
+                new DeviceImportLineParser(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator()),
+                new TransactionTemplate(transactionManager),
+                entityManager,
+                deviceListGeneration,
+                deviceIdFilter);
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 10);
+        ReflectionTestUtils.setField(importService, "maxLineLength", 100);
+    }
+
+    @Test
+    @DisplayName("Import NDJSON - valid lines are committed in chunks, invalid lines are reported")
+    void importDevices_mixedLines() throws Exception {
+        String ndjson = """
+                {"name":"d1","brand":"b1","state":"AVAILABLE"}
+                {"name":"d2","brand":"b2","state":"IN_USE"}
+                {"name":"","brand":"b3","state":"AVAILABLE"}
+
+                {"name":"d4","brand":"b4"
+                {"name":"d5","brand":"b5","state":"INACTIVE"}
+                """;
+
+        BulkImportResultDTO result = importService.importDevices(stream(ndjson));
+
+        assertThat(result.getReceived()).isEqualTo(5);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(3L, 5L);
+        assertThat(result.getErrors().get(0).getMessage()).contains("Name is mandatory");
+        assertThat(result.getErrors().get(1).getMessage()).startsWith("Malformed JSON");
+        assertThat(result.isErrorsTruncated()).isFalse();
+
+        verify(deviceRepository, times(2)).saveAll(anyList());
+        verify(entityManager, times(2)).clear();
+        verify(deviceListGeneration).bumpAfterCommit();
+        verify(deviceIdFilter, times(2)).recordCreated(anyList());
+    }
+
+    @Test
+    @DisplayName("Import NDJSON - a chunk failing for other reasons than its data fails its lines without aborting the import")
+    void importDevices_chunkFailureContinues() throws Exception {
+        String ndjson = """
+                {"name":"d1","brand":"b1","state":"AVAILABLE"}
+                {"name":"d2","brand":"b2","state":"AVAILABLE"}
+                {"name":"d3","brand":"b3","state":"AVAILABLE"}
+                """;
+        when(deviceRepository.saveAll(anyList()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(List.of());
+
+        BulkImportResultDTO result = importService.importDevices(stream(ndjson));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(1L, 2L);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Import NDJSON - a chunk rejected for its data is retried row by row, failing only the offending line")
+    void importDevices_chunkRetriedRowByRow() throws Exception {
+        String ndjson = """
+                {"name":"d1","brand":"b1","state":"AVAILABLE"}
+                {"name":"d2","brand":"b2","state":"AVAILABLE"}
+                {"name":"d3","brand":"b3","state":"AVAILABLE"}
+                """;
+        when(deviceRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("too long"))
+                .thenReturn(List.of())
+                .thenThrow(new DataIntegrityViolationException("too long"))
+                .thenReturn(List.of());
+
+        BulkImportResultDTO result = importService.importDevices(stream(ndjson));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting("line").containsExactly(2L);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("Rejected by database: too long");
+        verify(deviceRepository, times(4)).saveAll(anyList());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(deviceIdFilter, times(2)).recordCreated(anyList());
+    }
+
+    @Test
+    @DisplayName("Import NDJSON - a line over the length limit is rejected; CRLF line ends are accepted")
+    void importDevices_lineTooLong() throws Exception {
+        String ndjson = "{\"name\":\"d1\",\"brand\":\"b1\",\"state\":\"AVAILABLE\"}\r\n"
+                + "{\"name\":\"" + "x".repeat(200) + "\",\"brand\":\"b2\",\"state\":\"AVAILABLE\"}\r\n"
+                + "{\"name\":\"d3\",\"brand\":\"b3\",\"state\":\"AVAILABLE\"}";
+
+        BulkImportResultDTO result = importService.importDevices(stream(ndjson));
+
+        assertThat(result.getReceived()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(2L);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("Line longer than 100 characters");
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.config.CacheCircuitBreaker;
+import com.example.devicemanager.config.DeviceCacheProperties;
+import com.example.devicemanager.config.ReplicaLagMonitor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceListGenerationTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private final CacheCircuitBreaker breaker = closedBreaker();
+
+    @Test
+    @DisplayName("Bump - a failed INCR is retried by the next read of the generation, even if the breaker never opens")
+    void bump_failureRetriedOnNextRead() {
+        DeviceListGeneration generation = new DeviceListGeneration(redisTemplate, breaker, replicaLagMonitor, taskScheduler);
+        generation.init();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(DeviceListGeneration.KEY)).thenReturn("5", "5", "6");
+        when(valueOperations.increment(DeviceListGeneration.KEY))
+                .thenThrow(new RedisConnectionFailureException("Connection reset"))
+                .thenReturn(6L);
+
+        generation.bumpAfterCommit();
+
+        assertThat(generation.current()).isEqualTo(6);
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.CLOSED);
+        verify(valueOperations, times(2)).increment(DeviceListGeneration.KEY);
+
+        generation.current();
+        verify(valueOperations, times(2)).increment(DeviceListGeneration.KEY);
+    }
+
+    @Test
+    @DisplayName("Bump - with replicas, writes are bumped again once the replicas have caught up, sharing one delayed bump")
+    void bump_againAfterReplicaLag() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(Map.of(), Duration.ofSeconds(5), Duration.ofSeconds(5));
+        when(replicaLagMonitor.getIfAvailable()).thenReturn(monitor);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(DeviceListGeneration.KEY)).thenReturn("5");
+        DeviceListGeneration generation = new DeviceListGeneration(redisTemplate, breaker, replicaLagMonitor, taskScheduler);
+        Instant before = Instant.now();
+
+        generation.bumpAfterCommit();
+        generation.bumpAfterCommit();
+
+        ArgumentCaptor<Runnable> delayedBump = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(delayedBump.capture(), at.capture());
+        assertThat(at.getValue()).isAfterOrEqualTo(before.plus(monitor.getStalenessBound()));
+        verify(valueOperations, times(2)).increment(DeviceListGeneration.KEY);
+
+        when(replicaLagMonitor.getObject()).thenReturn(monitor);
+        delayedBump.getValue().run();
+
+        verify(valueOperations, times(3)).increment(DeviceListGeneration.KEY);
+        // The second write came after the one the bump was scheduled for
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    private static CacheCircuitBreaker closedBreaker() {
+        DeviceCacheProperties.Breaker settings = new DeviceCacheProperties.Breaker();
+        settings.setMinimumCalls(100);
+        return new CacheCircuitBreaker(settings, new SimpleMeterRegistry());
+    }
+}
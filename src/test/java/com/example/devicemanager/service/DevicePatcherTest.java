@@ -0,0 +1,53 @@
+package com.example.devicemanager.service;
+
+import com.example.devicemanager.dto.DeviceDTO;
+import com.example.devicemanager.model.Device;
+import com.example.devicemanager.model.State;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DevicePatcherTest {
+
+    private final DevicePatcher patcher = new DevicePatcher();
+
+    @Test
+    @DisplayName("Apply patch - null fields are left unchanged, id and creationTime are never patched")
+    void apply_partialPatch() {
+        Instant creationTime = Instant.parse("2025-05-25T10:15:30Z");
+        Device device = Device.builder().id(1L).name("name").brand("brand").state(State.AVAILABLE)
+                .creationTime(creationTime).build();
+
+        boolean changed = patcher.apply(DeviceDTO.builder()
+                .id(99L)
+                .state(State.INACTIVE)
+                .creationTime(Instant.now())
+                .build(), device);
+
+        assertThat(changed).isTrue();
+        assertThat(device.getId()).isEqualTo(1L);
+        assertThat(device.getName()).isEqualTo("name");
+        assertThat(device.getBrand()).isEqualTo("brand");
+        assertThat(device.getState()).isEqualTo(State.INACTIVE);
+        assertThat(device.getCreationTime()).isEqualTo(creationTime);
+    }
+
+    @Test
+    @DisplayName("Apply patch - identical values report no change")
+    void apply_noChange() {
+        Device device = Device.builder().id(1L).name("name").brand("brand").state(State.IN_USE).build();
+
+        boolean changed = patcher.apply(DeviceDTO.builder()
+                .name("name")
+                .brand("brand")
+                .state(State.IN_USE)
+                .build(), device);
+
+        assertThat(changed).isFalse();
+        assertThat(patcher.changesNameOrBrand(DeviceDTO.builder().name("name").build(), device)).isFalse();
+        assertThat(patcher.changesNameOrBrand(DeviceDTO.builder().brand("other").build(), device)).isTrue();
+    }
+}
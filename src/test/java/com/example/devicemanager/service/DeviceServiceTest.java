@@ -1,17 +1,25 @@
 package com.example.devicemanager.service;
 
+import com.example.devicemanager.config.TwoLevelCache;
+import com.example.devicemanager.config.TwoLevelCacheManager;
 import com.example.devicemanager.model.Device;
 import com.example.devicemanager.model.State;
 import com.example.devicemanager.dto.CreateDeviceDTO;
+import com.example.devicemanager.dto.CursorPageDTO;
 import com.example.devicemanager.dto.DeviceDTO;
 import com.example.devicemanager.exception.BusinessException;
 import com.example.devicemanager.exception.DeviceInUseException;
 import com.example.devicemanager.exception.DeviceNotFoundException;
+import com.example.devicemanager.exception.PreconditionFailedException;
 import com.example.devicemanager.repository.DeviceRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.*;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.Pageable;
 
 import java.time.Instant;
 import java.util.*;
@@ -31,6 +39,18 @@ class DeviceServiceTest {
     @Mock
     private DeviceMapper deviceMapper;
 
+    @Spy
+    private DevicePatcher devicePatcher = new DevicePatcher();
+
+    @Mock
+    private DeviceListGeneration deviceListGeneration;
+
+    @Mock
+    private DeviceIdFilter deviceIdFilter;
+
+    @Mock
+    private TwoLevelCacheManager cacheManager;
+
     // === CREATE DEVICE ===
     @Test
     @DisplayName("Create device - success")
@@ -81,15 +101,35 @@ class DeviceServiceTest {
                 .build();
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(deviceRepository.save(any(Device.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(deviceMapper.toDTO(any(Device.class))).thenReturn(updateDTO);
 
-        DeviceDTO updated = deviceService.updateDevice(id, updateDTO);
+        DeviceDTO updated = deviceService.updateDevice(id, updateDTO, null);
+        assertThat(existing.getName()).isEqualTo("newName");
+        assertThat(existing.getBrand()).isEqualTo("newBrand");
+        assertThat(existing.getState()).isEqualTo(State.INACTIVE);
+        verify(deviceRepository, never()).save(any(Device.class));
         assertThat(updated.getName()).isEqualTo("newName");
         assertThat(updated.getBrand()).isEqualTo("newBrand");
         assertThat(updated.getState()).isEqualTo(State.INACTIVE);
     }
 
+    @Test
+    @DisplayName("Update device - throw PreconditionFailedException if If-Match version is stale")
+    void updateDevice_staleVersion() {
+        Long id = 1L;
+        Device existing = Device.builder().id(id).name("name").brand("brand").state(State.AVAILABLE).version(2L).build();
+        DeviceDTO dto = DeviceDTO.builder().state(State.INACTIVE).build();
+
+        when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
+
+        assertThatThrownBy(() -> deviceService.updateDevice(id, dto, 1L))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        assertThat(existing.getState()).isEqualTo(State.AVAILABLE);
+        verify(deviceRepository, never()).flush();
+        verifyNoInteractions(deviceListGeneration);
+    }
+
     @Test
     @DisplayName("Update device - throw BusinessException if device not found")
     void updateDevice_notFound() {
@@ -98,7 +138,7 @@ class DeviceServiceTest {
 
         DeviceDTO dto = DeviceDTO.builder().name("name").brand("brand").state(State.AVAILABLE).build();
 
-        assertThatThrownBy(() -> deviceService.updateDevice(id, dto))
+        assertThatThrownBy(() -> deviceService.updateDevice(id, dto, null))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("not found");
     }
@@ -123,11 +163,11 @@ class DeviceServiceTest {
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
 
-        assertThatThrownBy(() -> deviceService.updateDevice(id, dto1))
+        assertThatThrownBy(() -> deviceService.updateDevice(id, dto1, null))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("Cannot update name or brand");
 
-        assertThatThrownBy(() -> deviceService.updateDevice(id, dto2))
+        assertThatThrownBy(() -> deviceService.updateDevice(id, dto2, null))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("Cannot update name or brand");
     }
@@ -137,46 +177,93 @@ class DeviceServiceTest {
     @DisplayName("Get device - success")
     void getDevice_success() {
         Long id = 1L;
-        Device device = new Device();
-        device.setId(id);
-        device.setName("device");
-        device.setBrand("brand");
-        device.setState(State.AVAILABLE);
-
         DeviceDTO dto = DeviceDTO.builder().id(id).name("device").brand("brand").state(State.AVAILABLE).build();
 
-        when(deviceRepository.findById(id)).thenReturn(Optional.of(device));
-        when(deviceMapper.toDTO(device)).thenReturn(dto);
+        when(deviceRepository.findDtoById(id)).thenReturn(Optional.of(dto));
 
         DeviceDTO result = deviceService.getDevice(id);
         assertThat(result).isEqualTo(dto);
+        verifyNoInteractions(deviceMapper);
     }
 
     @Test
     @DisplayName("Get device - throw DeviceNotFoundException if not found")
     void getDevice_notFound() {
         Long id = 999L;
-        when(deviceRepository.findById(id)).thenReturn(Optional.empty());
+        when(deviceRepository.findDtoById(id)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> deviceService.getDevice(id))
                 .isInstanceOf(DeviceNotFoundException.class)
                 .hasMessageContaining("Device not found");
+        verify(deviceIdFilter).recordMissing(id);
+        verify(deviceRepository, times(2)).findDtoById(id);
+        verify(deviceIdFilter, never()).clearMissing(id);
+    }
+
+    @Test
+    @DisplayName("Get device - a create committing during the miss clears the negative entry")
+    void getDevice_createdDuringMiss() {
+        Long id = 5L;
+        DeviceDTO dto = DeviceDTO.builder().id(id).name("device").brand("brand").state(State.AVAILABLE).build();
+        when(deviceRepository.findDtoById(id)).thenReturn(Optional.empty(), Optional.of(dto));
+
+        assertThat(deviceService.getDevice(id)).isEqualTo(dto);
+        verify(deviceIdFilter).recordMissing(id);
+        verify(deviceIdFilter).clearMissing(id);
+    }
+
+    @Test
+    @DisplayName("Get device - ids known to be missing are rejected without a query")
+    void getDevice_knownMissing() {
+        Long id = 999L;
+        when(deviceIdFilter.isKnownMissing(id)).thenReturn(true);
+
+        assertThatThrownBy(() -> deviceService.getDevice(id))
+                .isInstanceOf(DeviceNotFoundException.class);
+        verifyNoInteractions(deviceRepository);
+    }
+
+    @Test
+    @DisplayName("Get devices - cached ones from the cache, the rest in one query, in request order without duplicates or unknown ids")
+    void getDevices_cachedAndLoaded() {
+        ConcurrentMapCache shared = new ConcurrentMapCache("devices", false);
+        when(cacheManager.getCache("devices")).thenReturn(new TwoLevelCache("devices", Caffeine.newBuilder().build(),
+                shared, (cacheName, key) -> { }, null, new SimpleMeterRegistry()));
+        DeviceDTO cached = DeviceDTO.builder().id(1L).name("cached").build();
+        DeviceDTO loaded = DeviceDTO.builder().id(2L).name("loaded").build();
+        shared.put(1L, cached);
+        when(deviceRepository.findDtosByIdIn(List.of(2L, 3L))).thenReturn(List.of(loaded));
+
+        List<DeviceDTO> result = deviceService.getDevices(List.of(2L, 1L, 2L, 3L));
+
+        assertThat(result).containsExactly(loaded, cached);
+        assertThat(shared.get(2L).get()).isEqualTo(loaded);
+    }
+
+    @Test
+    @DisplayName("Get devices - too many ids are rejected")
+    void getDevices_tooMany() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 501; id++) {
+            ids.add(id);
+        }
+
+        assertThatThrownBy(() -> deviceService.getDevices(ids)).isInstanceOf(BusinessException.class);
+        verifyNoInteractions(deviceRepository, cacheManager);
     }
 
     // === DELETE DEVICE ===
     @Test
-    @DisplayName("Delete device - success when state is not IN_USE")
+    @DisplayName("Delete device - success when state is not IN_USE, in a single statement")
     void deleteDevice_success() {
         Long id = 1L;
-        Device device = new Device();
-        device.setId(id);
-        device.setState(State.AVAILABLE);
-
-        when(deviceRepository.findById(id)).thenReturn(Optional.of(device));
-        doNothing().when(deviceRepository).deleteById(id);
+        when(deviceRepository.deleteIfNotInUse(id, null)).thenReturn(1);
 
-        deviceService.deleteDevice(id);
+        deviceService.deleteDevice(id, null);
 
-        verify(deviceRepository).deleteById(id);
+        verify(deviceRepository).deleteIfNotInUse(id, null);
+        verify(deviceRepository, never()).findById(any());
+        verify(deviceListGeneration).bumpAfterCommit();
+        verify(deviceIdFilter).recordDeleted(id);
     }
 
     @Test
@@ -187,42 +274,76 @@ class DeviceServiceTest {
         device.setId(id);
         device.setState(State.IN_USE);
 
+        when(deviceRepository.deleteIfNotInUse(id, null)).thenReturn(0);
         when(deviceRepository.findById(id)).thenReturn(Optional.of(device));
 
-        assertThatThrownBy(() -> deviceService.deleteDevice(id))
+        assertThatThrownBy(() -> deviceService.deleteDevice(id, null))
                 .isInstanceOf(DeviceInUseException.class)
                 .hasMessageContaining("Cannot delete device that is in use");
+    }
 
-        verify(deviceRepository, never()).deleteById(id);
+    @Test
+    @DisplayName("Delete device - throw DeviceNotFoundException when nothing was deleted and the row is missing")
+    void deleteDevice_notFound() {
+        Long id = 1L;
+        when(deviceRepository.deleteIfNotInUse(id, null)).thenReturn(0);
+        when(deviceRepository.findById(id)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> deviceService.deleteDevice(id, null))
+                .isInstanceOf(DeviceNotFoundException.class);
     }
 
+    @Test
+    @DisplayName("Delete device - throw PreconditionFailedException when If-Match version is stale")
+    void deleteDevice_staleVersion() {
+        Long id = 1L;
+        Device device = new Device();
+        device.setId(id);
+        device.setState(State.AVAILABLE);
+        device.setVersion(4L);
+
+        when(deviceRepository.deleteIfNotInUse(id, 3L)).thenReturn(0);
+        when(deviceRepository.findById(id)).thenReturn(Optional.of(device));
+
+        assertThatThrownBy(() -> deviceService.deleteDevice(id, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
 
-    // === GET DEVICES BY BRAND ===
+    // === CHANGE STATE ===
     @Test
-    @DisplayName("Get devices by brand - success")
-    void getDevicesByBrand_success() {
-        List<Device> devices = List.of(new Device(), new Device());
-        when(deviceRepository.findByBrand("brand1")).thenReturn(devices);
-        when(deviceMapper.toDTO(any())).thenReturn(DeviceDTO.builder().build());
-
-        List<DeviceDTO> dtos = deviceService.getDevicesByBrand("brand1");
-        assertThat(dtos.size()).isEqualTo(devices.size());
+    @DisplayName("Change state - success in a single guarded statement")
+    void changeState_success() {
+        Long id = 1L;
+        when(deviceRepository.updateStateIfChanged(id, State.IN_USE, null)).thenReturn(1);
+
+        deviceService.changeState(id, State.IN_USE, null);
+
+        verify(deviceRepository, never()).findById(any());
+        verify(deviceListGeneration).bumpAfterCommit();
     }
 
-    // === GET DEVICES BY STATE ===
     @Test
-    @DisplayName("Get devices by state - success for all states")
-    void getDevicesByState_success() {
-        for (State state : State.values()) {
-            List<Device> devices = List.of(new Device(), new Device());
-            when(deviceRepository.findByState(state)).thenReturn(devices);
-            when(deviceMapper.toDTO(any())).thenReturn(DeviceDTO.builder().build());
+    @DisplayName("Change state - throw DeviceInUseException when claiming a device already IN_USE")
+    void changeState_alreadyInUse() {
+        Long id = 1L;
+        Device device = Device.builder().id(id).state(State.IN_USE).version(2L).build();
+        when(deviceRepository.updateStateIfChanged(id, State.IN_USE, null)).thenReturn(0);
+        when(deviceRepository.findById(id)).thenReturn(Optional.of(device));
 
-            List<DeviceDTO> dtos = deviceService.getDevicesByState(state);
-            assertThat(dtos.size()).isEqualTo(devices.size());
+        assertThatThrownBy(() -> deviceService.changeState(id, State.IN_USE, null))
+                .isInstanceOf(DeviceInUseException.class);
+    }
 
-            clearInvocations(deviceRepository, deviceMapper);
-        }
+    @Test
+    @DisplayName("Change state - repeating a non IN_USE state is a no-op")
+    void changeState_sameStateNoOp() {
+        Long id = 1L;
+        Device device = Device.builder().id(id).state(State.INACTIVE).version(2L).build();
+        when(deviceRepository.updateStateIfChanged(id, State.INACTIVE, 2L)).thenReturn(0);
+        when(deviceRepository.findById(id)).thenReturn(Optional.of(device));
+
+        assertThatCode(() -> deviceService.changeState(id, State.INACTIVE, 2L)).doesNotThrowAnyException();
+        verifyNoInteractions(deviceListGeneration);
     }
 
     // === CREATE DEVICES BULK ===
@@ -264,10 +385,9 @@ class DeviceServiceTest {
                 .build();
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(deviceRepository.save(any(Device.class))).thenAnswer(i -> i.getArgument(0));
         when(deviceMapper.toDTO(any(Device.class))).thenReturn(updateDTO);
 
-        DeviceDTO result = deviceService.updateDevice(id, updateDTO);
+        DeviceDTO result = deviceService.updateDevice(id, updateDTO, null);
 
         assertThat(result.getName()).isEqualTo("NewName");
         assertThat(result.getBrand()).isEqualTo("OldBrand");
@@ -292,10 +412,9 @@ class DeviceServiceTest {
                 .build();
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(deviceRepository.save(any(Device.class))).thenAnswer(i -> i.getArgument(0));
         when(deviceMapper.toDTO(any(Device.class))).thenReturn(updateDTO);
 
-        DeviceDTO result = deviceService.updateDevice(id, updateDTO);
+        DeviceDTO result = deviceService.updateDevice(id, updateDTO, null);
 
         assertThat(result.getName()).isEqualTo("OldName");
         assertThat(result.getBrand()).isEqualTo("NewBrand");
@@ -321,7 +440,7 @@ class DeviceServiceTest {
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
 
-        assertThatThrownBy(() -> deviceService.updateDevice(id, updateDTO))
+        assertThatThrownBy(() -> deviceService.updateDevice(id, updateDTO, null))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("Cannot update name or brand");
     }
@@ -346,7 +465,7 @@ class DeviceServiceTest {
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
 
-        assertThatThrownBy(() -> deviceService.updateDevice(id, updateDTO))
+        assertThatThrownBy(() -> deviceService.updateDevice(id, updateDTO, null))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("Cannot update name or brand");
     }
@@ -370,10 +489,9 @@ class DeviceServiceTest {
                 .build();
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(deviceRepository.save(any(Device.class))).thenAnswer(i -> i.getArgument(0));
         when(deviceMapper.toDTO(any(Device.class))).thenReturn(updateDTO);
 
-        DeviceDTO result = deviceService.updateDevice(id, updateDTO);
+        DeviceDTO result = deviceService.updateDevice(id, updateDTO, null);
 
         assertThat(result.getName()).isEqualTo("NewName");
         assertThat(result.getBrand()).isEqualTo("OldBrand");
@@ -398,13 +516,58 @@ class DeviceServiceTest {
                 .build();
 
         when(deviceRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(deviceRepository.save(any(Device.class))).thenAnswer(i -> i.getArgument(0));
         when(deviceMapper.toDTO(any(Device.class))).thenReturn(updateDTO);
 
-        DeviceDTO result = deviceService.updateDevice(id, updateDTO);
+        DeviceDTO result = deviceService.updateDevice(id, updateDTO, null);
 
         assertThat(result.getName()).isEqualTo("OldName");
         assertThat(result.getBrand()).isEqualTo("NewBrand");
     }
 
+    // === CURSOR PAGINATION ===
+    @Test
+    @DisplayName("List devices after cursor - first page returns next cursor when more rows exist")
+    void listDevicesAfter_firstPage() {
+        Instant now = Instant.parse("2025-05-25T10:15:30Z");
+        List<DeviceDTO> rows = List.of(
+                DeviceDTO.builder().id(1L).creationTime(now).build(),
+                DeviceDTO.builder().id(2L).creationTime(now).build(),
+                DeviceDTO.builder().id(3L).creationTime(now).build());
+
+        when(deviceRepository.findFirstPage(any(Pageable.class))).thenReturn(rows);
+
+        CursorPageDTO<DeviceDTO> page = deviceService.listDevicesAfter(null, 2);
+
+        assertThat(page.getContent()).extracting(DeviceDTO::getId).containsExactly(1L, 2L);
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(DeviceCursor.decode(page.getNextCursor())).isEqualTo(new DeviceCursor(now, 2L));
+        verify(deviceRepository).findFirstPage(Pageable.ofSize(3));
+    }
+
+    @Test
+    @DisplayName("List devices after cursor - seeks past the decoded position")
+    void listDevicesAfter_nextPage() {
+        Instant now = Instant.parse("2025-05-25T10:15:30Z");
+        String after = new DeviceCursor(now, 2L).encode();
+
+        when(deviceRepository.findPageAfter(eq(now), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(DeviceDTO.builder().id(3L).creationTime(now).build()));
+
+        CursorPageDTO<DeviceDTO> page = deviceService.listDevicesAfter(after, 2);
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("List devices after cursor - throw BusinessException for malformed cursor")
+    void listDevicesAfter_invalidCursor() {
+        assertThatThrownBy(() -> deviceService.listDevicesAfter("not-a-cursor", 10))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Invalid cursor");
+
+        verifyNoInteractions(deviceRepository);
+    }
+
 }